@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Writes binary content to the response. Random access content is transferred from the stream that is already open,
+ * so the bytes sent belong to the version the headers were built for. Content stored as blob is handed over to the
+ * container's sendfile support if available instead, by the path of the blob, which never changes. Requested byte
+ * ranges of random access content are answered with partial content.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Component
+public class BinaryContentWriter {
+
+	static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+	static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+	static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+	static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+	static final int MAX_RANGES = 64;
+
+	public void write(InputStream data, HttpServletRequest request, HttpServletResponse response) {
+		try (InputStream in = data) {
+			if (data instanceof RandomAccessContent) {
+				writeRandomAccess((RandomAccessContent) data, request, response);
+			} else {
+				IOUtils.copy(data, response.getOutputStream());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing binary content", e);
+		}
+	}
+
+	private void writeRandomAccess(RandomAccessContent data, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		long size = data.size();
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+		List<HttpRange> requestedRanges = parseRanges(request, response);
+		if (requestedRanges.isEmpty()) {
+			response.setContentLengthLong(size);
+			writeRegion(data, 0, size, request, response);
+			return;
+		}
+
+		List<ByteRange> ranges = toByteRanges(requestedRanges, size);
+		if (ranges.isEmpty()) {
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+			response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+		} else if (ranges.size() == 1) {
+			ByteRange range = ranges.get(0);
+			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+			response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(size));
+			response.setContentLengthLong(range.length());
+			writeRegion(data, range.start, range.length(), request, response);
+		} else {
+			writeMultipleRanges(data, ranges, size, response);
+		}
+	}
+
+	private List<HttpRange> parseRanges(HttpServletRequest request, HttpServletResponse response) {
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (!StringUtils.hasText(rangeHeader) || !matchesIfRange(request, response)) {
+			return Collections.emptyList();
+		}
+		try {
+			List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+			// ignoring the Range header is always allowed, so excessive ranges are answered with the whole content
+			return ranges.size() > MAX_RANGES ? Collections.emptyList() : ranges;
+		} catch (IllegalArgumentException e) {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * If-Range holds either the entity tag or the last modification date the client knows, the range is only valid if
+	 * it still matches the current content.
+	 */
+	private boolean matchesIfRange(HttpServletRequest request, HttpServletResponse response) {
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		String validator = ifRange.startsWith("\"") ? response.getHeader(HttpHeaders.ETAG)
+				: response.getHeader(HttpHeaders.LAST_MODIFIED);
+		return ifRange.equals(validator);
+	}
+
+	private List<ByteRange> toByteRanges(List<HttpRange> requestedRanges, long size) {
+		List<ByteRange> ranges = new ArrayList<>();
+		for (HttpRange requested : requestedRanges) {
+			try {
+				long start = requested.getRangeStart(size);
+				long end = requested.getRangeEnd(size);
+				if (start < size && start <= end) {
+					ranges.add(new ByteRange(start, end));
+				}
+			} catch (IllegalArgumentException e) {
+				// not satisfiable, ignored as long as any other range is
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * The container sends the file after the stream was closed, so only a file that never changes is handed over.
+	 */
+	private void writeRegion(RandomAccessContent data, long position, long count, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		Path immutableFile = data instanceof FileContentInputStream
+				? ((FileContentInputStream) data).getImmutableFile() : null;
+		if (immutableFile != null && isSendfileSupported(request)) {
+			request.setAttribute(SENDFILE_FILENAME_ATTR, immutableFile.toFile().getCanonicalPath());
+			request.setAttribute(SENDFILE_START_ATTR, position);
+			request.setAttribute(SENDFILE_END_ATTR, position + count);
+		} else {
+			data.transferTo(position, count, response.getOutputStream());
+		}
+	}
+
+	private boolean isSendfileSupported(HttpServletRequest request) {
+		return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR));
+	}
+
+	private void writeMultipleRanges(RandomAccessContent data, List<ByteRange> ranges, long size,
+			HttpServletResponse response) throws IOException {
+		String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+		String contentType = response.getContentType();
+
+		List<byte[]> partHeaders = new ArrayList<>();
+		long contentLength = 0;
+		for (ByteRange range : ranges) {
+			StringBuilder partHeader = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+			if (contentType != null) {
+				partHeader.append(HttpHeaders.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+			}
+			partHeader.append(HttpHeaders.CONTENT_RANGE).append(": ").append(range.toContentRange(size))
+					.append("\r\n\r\n");
+			byte[] headerBytes = partHeader.toString().getBytes(StandardCharsets.US_ASCII);
+			partHeaders.add(headerBytes);
+			contentLength += headerBytes.length + range.length();
+		}
+		byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		contentLength += end.length;
+
+		response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setContentLengthLong(contentLength);
+
+		OutputStream out = response.getOutputStream();
+		for (int i = 0; i < ranges.size(); i++) {
+			out.write(partHeaders.get(i));
+			data.transferTo(ranges.get(i).start, ranges.get(i).length(), out);
+		}
+		out.write(end);
+	}
+
+	private static class ByteRange {
+		private final long start;
+		private final long end;
+
+		ByteRange(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		long length() {
+			return end - start + 1;
+		}
+
+		String toContentRange(long size) {
+			return "bytes " + start + "-" + end + "/" + size;
+		}
+	}
+}
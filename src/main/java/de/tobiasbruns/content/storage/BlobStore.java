@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import de.tobiasbruns.content.storage.StorageBackend.DataWriter;
+
+/**
+ * Stores binary content once per distinct content. Blobs are named by the SHA-256 hash of their content, which is
+ * computed while the content is written. The content files are hard links to their blob, so the link count of a blob
+ * is its reference count and blobs referenced by no content any more are removed by the garbage collection.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class BlobStore {
+
+	static final String BLOB_DIR = ".blobs";
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	private static final int LOCK_STRIPES = 64;
+
+	@Autowired
+	private FileSystemService fsService;
+	@Value("${storage.blobs.enabled:false}")
+	private boolean enabled;
+	@Value("${storage.blobs.unlink_grace:60000}")
+	private long unlinkGraceMillis = 60000;
+
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	public BlobStore() {
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public static boolean isBlobPath(String path) {
+		String normalized = path.replaceFirst("^/+", "");
+		return normalized.equals(BLOB_DIR) || normalized.startsWith(BLOB_DIR + "/");
+	}
+
+	/**
+	 * Stores the data as blob, if it is not stored yet, and links the content file at the given path to it.
+	 *
+	 * @return the hash of the data
+	 */
+	public String store(String path, InputStream data) {
+		return store(path, out -> IOUtils.copy(data, out, COPY_BUFFER_SIZE));
+	}
+
+	/**
+	 * Stores the data written by the writer as blob, if it is not stored yet, and links the content file at the given
+	 * path to it.
+	 *
+	 * @return the hash of the data
+	 */
+	public String store(String path, DataWriter writer) {
+		File blobDir = getBlobDirectory();
+		Path tempFile = fsService.buildTempFile(blobDir, "blob");
+		try {
+			MessageDigest digest = createDigest();
+			fsService.writeTempFile(tempFile, out -> writer.write(new DigestOutputStream(out, digest)));
+			String hash = toHex(digest.digest());
+
+			Path blob = getBlobFile(hash);
+			synchronized (getLock(hash)) {
+				// paths sharing the blob keep their own modification stamps in their MetaData
+				if (!Files.exists(blob)) {
+					Files.createDirectories(blob.getParent());
+					fsService.replaceFile(tempFile, blob);
+				}
+				fsService.linkFile(blob, path);
+			}
+			return hash;
+		} catch (IOException e) {
+			throw new RuntimeException("Error storing blob for " + path, e);
+		} finally {
+			fsService.deleteQuietly(tempFile);
+		}
+	}
+
+	/**
+	 * A blob is never changed while it exists, so it can be read by its own path after the content was replaced.
+	 *
+	 * @return the file of the blob, if the content with the given attributes is linked to it, null otherwise
+	 */
+	public Path getImmutableFile(String hash, BasicFileAttributes attributes) {
+		Path blob = getBlobFile(hash);
+		try {
+			Object fileKey = Files.readAttributes(blob, BasicFileAttributes.class).fileKey();
+			return fileKey != null && fileKey.equals(attributes.fileKey()) ? blob : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Removes all blobs, which are not linked by any content file any more. If the file system does not report link
+	 * counts, blobs are never removed.
+	 */
+	@Scheduled(fixedDelayString = "${storage.blobs.gc_interval:3600000}")
+	public void collectGarbage() {
+		File blobDir = fsService.toFile(BLOB_DIR);
+		if (!enabled || !blobDir.isDirectory()) {
+			return;
+		}
+		try (DirectoryStream<Path> shards = Files.newDirectoryStream(blobDir.toPath(), Files::isDirectory)) {
+			for (Path shard : shards) {
+				collectGarbage(shard);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error collecting unused blobs", e);
+		}
+	}
+
+	private void collectGarbage(Path shard) throws IOException {
+		try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+			for (Path blob : blobs) {
+				synchronized (getLock(blob.getFileName().toString())) {
+					if (getLinkCount(blob) == 1 && !isRecentlyUnlinked(blob)) {
+						Files.deleteIfExists(blob);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A blob unlinked just now may still be sent by its own path to a client, which read the content before.
+	 */
+	private boolean isRecentlyUnlinked(Path blob) throws IOException {
+		try {
+			FileTime changed = (FileTime) Files.getAttribute(blob, "unix:ctime");
+			return System.currentTimeMillis() - changed.toMillis() < unlinkGraceMillis;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private int getLinkCount(Path blob) throws IOException {
+		try {
+			return (Integer) Files.getAttribute(blob, "unix:nlink");
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	private File getBlobDirectory() {
+		File blobDir = fsService.toFile(BLOB_DIR);
+		blobDir.mkdirs();
+		return blobDir;
+	}
+
+	Path getBlobFile(String hash) {
+		return getBlobDirectory().toPath().resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private Object getLock(String hash) {
+		return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+	}
+
+	private MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of a bulk request. The path addresses the content relative to the folder the request is sent to, the
+ * version, if given, makes an update or delete conditional like an If-Match header.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class BulkOperation {
+
+	public enum Type {
+		@JsonProperty("create")
+		CREATE,
+		@JsonProperty("update")
+		UPDATE,
+		@JsonProperty("delete")
+		DELETE
+	}
+
+	private Type op;
+	private String path;
+	private Long version;
+	private Content<Map<String, Object>> content;
+
+	public Type getOp() {
+		return op;
+	}
+
+	public void setOp(Type op) {
+		this.op = op;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Content<Map<String, Object>> getContent() {
+		return content;
+	}
+
+	public void setContent(Content<Map<String, Object>> content) {
+		this.content = content;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import de.tobiasbruns.content.storage.exception.FunctionalException;
+
+/**
+ * The outcome of one operation of a bulk request, given with the HTTP status the operation would have been answered
+ * with on its own.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@JsonInclude(Include.NON_NULL)
+public class BulkResult {
+
+	private final int index;
+	private final String path;
+	private final int status;
+	private final Long version;
+	private final String error;
+
+	private BulkResult(int index, String path, HttpStatus status, Long version, String error) {
+		this.index = index;
+		this.path = path;
+		this.status = status.value();
+		this.version = version;
+		this.error = error;
+	}
+
+	static BulkResult success(int index, String path, HttpStatus status, Long version) {
+		return new BulkResult(index, path, status, version, null);
+	}
+
+	static BulkResult failure(int index, String path, FunctionalException e) {
+		return new BulkResult(index, path, e.getHttpStatus(), null, e.getMessageCode());
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public String getError() {
+		return error;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException.MessageCode;
+
+/**
+ * Applies a stream of operations, one JSON object per line, in batches. Only a batch is held in memory, its results
+ * are written as soon as it is applied.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class BulkService {
+
+	public static final String NDJSON = "application/x-ndjson";
+
+	@Autowired
+	private StorageService storageService;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${storage.bulk.batch_size:100}")
+	private int batchSize = 100;
+
+	/**
+	 * A line, which is no valid operation, is answered with a failure of its own and the request goes on. A line, which
+	 * is no JSON at all, ends the request, it is answered with a result of its own after the preceding operations are
+	 * applied.
+	 */
+	public void apply(String folder, InputStream in, OutputStream out) throws IOException {
+		if (!storageService.resolve(folder).getAttributes().isDirectory()) {
+			throw new UnprocessableEntityException(MessageCode.PATH_NOT_DIR);
+		}
+		ObjectWriter writer = objectMapper.writerFor(BulkResult.class);
+		List<BulkOperation> batch = new ArrayList<>(batchSize);
+		int index = 0;
+		try (MappingIterator<JsonNode> lines = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+			while (lines.hasNextValue()) {
+				JsonNode line = lines.nextValue();
+				BulkOperation operation = toOperation(line);
+				if (operation == null) {
+					// the results are written in the order of the operations
+					index = applyBatch(folder, batch, index, writer, out);
+					write(BulkResult.failure(index++, line.path("path").textValue(),
+							new UnprocessableEntityException(MessageCode.INVALID_OPERATION)), writer, out);
+					continue;
+				}
+				batch.add(operation);
+				if (batch.size() == batchSize) {
+					index = applyBatch(folder, batch, index, writer, out);
+				}
+			}
+		} catch (JsonProcessingException e) {
+			index = applyBatch(folder, batch, index, writer, out);
+			write(BulkResult.failure(index, null, new UnprocessableEntityException(MessageCode.INVALID_OPERATION)),
+					writer, out);
+		}
+		applyBatch(folder, batch, index, writer, out);
+		out.flush();
+	}
+
+	private BulkOperation toOperation(JsonNode line) {
+		try {
+			return objectMapper.treeToValue(line, BulkOperation.class);
+		} catch (JsonProcessingException e) {
+			return null;
+		}
+	}
+
+	private int applyBatch(String folder, List<BulkOperation> batch, int index, ObjectWriter writer,
+			OutputStream out) throws IOException {
+		if (batch.isEmpty()) {
+			return index;
+		}
+		for (BulkResult result : storageService.applyBatch(folder, batch, index)) {
+			write(result, writer, out);
+		}
+		out.flush();
+		int nextIndex = index + batch.size();
+		batch.clear();
+		return nextIndex;
+	}
+
+	private void write(BulkResult result, ObjectWriter writer, OutputStream out) throws IOException {
+		out.write(writer.writeValueAsBytes(result));
+		out.write('\n');
+	}
+}
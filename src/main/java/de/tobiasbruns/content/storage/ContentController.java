@@ -1,195 +1,466 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Collection;
-import java.util.Map;
-
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-
-import org.apache.commons.io.IOUtils;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.hateoas.Link;
-import org.springframework.hateoas.Resource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
-import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.HandlerMapping;
-import org.springframework.web.util.UriComponentsBuilder;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
-
-/**
- * created: 25.10.2016
- * 
- * @author Tobias Bruns
- */
-@RestController
-@RequestMapping(path = "/**")
-public class ContentController {
-
-	@Autowired
-	private StorageService service;
-	@Autowired
-	private ObjectMapper mapper;
-
-	@RequestMapping(method = RequestMethod.GET, produces = "application/json")
-	public @ResponseBody Resource<Content<?>> loadContent(HttpServletRequest req, UriComponentsBuilder uriBuilder) {
-		Content<?> content = service.readContent(getPath(req));
-
-		return new Resource<>(content, currentContentSelfLink(uriBuilder, req));
-	}
-
-	@RequestMapping(method = RequestMethod.GET)
-	public void readBinaryContent(HttpServletRequest req, UriComponentsBuilder uriBuilder,
-			HttpServletResponse response) {
-		Content<?> content = service.readContent(getPath(req));
-		if (content.getHeader().isJsonContent()) {
-			writeJsonContent((Content<Map<String, Object>>) content, uriBuilder, req, response);
-		} else
-			writeBinaryContent((Content<InputStream>) content, response);
-	}
-
-	private void writeBinaryContent(Content<InputStream> content, HttpServletResponse response) {
-		content.getHeader().getContentType().ifPresent(response::setContentType);
-		content.getHeader().getSize().ifPresent(response::setContentLengthLong);
-		try {
-			IOUtils.copy(content.getContent(), response.getOutputStream());
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	private void writeJsonContent(Content<Map<String, Object>> content, UriComponentsBuilder uriBuilder,
-			HttpServletRequest req, HttpServletResponse response) {
-		response.setContentType("application/hal+json");
-		Resource<Content<Map<String, Object>>> result = new Resource<>(content,
-				currentContentSelfLink(uriBuilder, req));
-		try {
-			mapper.writeValue(response.getOutputStream(), result);
-		} catch (IOException e) {
-			throw new RuntimeException("Error writing json content", e);
-		}
-	}
-
-	@RequestMapping(method = RequestMethod.GET, params = "projection=metadata", produces = "application/json")
-	public @ResponseBody Resource<MetaDatum[]> loadMetadata(HttpServletRequest req, UriComponentsBuilder uriBuilder) {
-
-		Link selfLink = new Link(uriBuilder.path(getPath(req)).queryParam("projection", "metadata").toUriString());
-
-		Collection<MetaDatum> metaData = service.loadMetaData(getPath(req)).getData();
-		return new Resource<>(metaData.toArray(new MetaDatum[metaData.size()]), selfLink);
-	}
-
-	@RequestMapping(method = RequestMethod.GET, params = "projection=content")
-	public void loadContentData(HttpServletRequest req, HttpServletResponse response) throws IOException {
-		ContentHeader header = service.loadContentHeader(getPath(req));
-
-		if (header.getType() == ContentItemType.NODE) {
-			response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value());
-			return;
-		}
-
-		response.setContentType(header.getContentType().orElse("application/octet-stream"));
-		IOUtils.copy(service.loadContentData(getPath(req)), response.getOutputStream());
-	}
-
-	@RequestMapping(method = RequestMethod.POST)
-	@ResponseStatus(code = HttpStatus.CREATED)
-	public HttpEntity<?> createJsonContent(HttpServletRequest req, @RequestBody Content<Map<String, Object>> content,
-			UriComponentsBuilder uriBuilder) {
-		setContentTypeIfEmpty(content, "application/json");
-		String newPath = service.createContent(getPath(req), content);
-
-		HttpHeaders headers = new HttpHeaders();
-		headers.add("Location", uriBuilder.path(newPath).toUriString());
-		return new HttpEntity<>(headers);
-	}
-
-	private void setContentTypeIfEmpty(Content<?> content, String contentType) {
-		if (!content.getHeader().getContentType().isPresent()) {
-			content.getHeader().setContentType(contentType);
-		}
-	}
-
-	@RequestMapping(method = RequestMethod.POST, consumes = "multipart/form-data")
-	@ResponseStatus(code = HttpStatus.CREATED)
-	public HttpEntity<?> createBinaryContent(HttpServletRequest req, @RequestParam("file") MultipartFile file,
-			UriComponentsBuilder uriBuilder) {
-		String path = service.createContent(getPath(req), buildContent(file));
-
-		HttpHeaders headers = new HttpHeaders();
-		headers.add("Location", uriBuilder.path(path).toUriString());
-		return new HttpEntity<>(headers);
-	}
-
-	private Content<InputStream> buildContent(MultipartFile file) {
-		try {
-			Content<InputStream> content = new Content<>();
-			content.setContent(file.getInputStream());
-			content.getHeader().setContentType(file.getContentType());
-			content.getHeader().setName(file.getOriginalFilename());
-			return content;
-		} catch (IOException e) {
-			throw new RuntimeException("Error reading incoming file", e);
-		}
-	}
-
-	@RequestMapping(method = RequestMethod.PUT)
-	public Resource<Content<?>> changeContent(HttpServletRequest req, @RequestBody Content<Map<String, Object>> content,
-			UriComponentsBuilder uriBuilder) {
-		String path = service.writeContent(getPath(req), content);
-		return new Resource<>(content, currentContentSelfLink(uriBuilder, path));
-	}
-
-	@RequestMapping(method = RequestMethod.PUT, consumes = "multipart/form-data")
-	@ResponseStatus(code = HttpStatus.NO_CONTENT)
-	public void changeBinaryContent(HttpServletRequest req, @RequestParam("file") MultipartFile file,
-			UriComponentsBuilder uriBuilder) {
-		service.writeContent(getPath(req), buildContent(file));
-	}
-
-	@RequestMapping(method = RequestMethod.PUT, params = "projection=metadata")
-	@ResponseStatus(code = HttpStatus.NO_CONTENT)
-	public void changeMetaData(HttpServletRequest req, @RequestBody Collection<MetaDatum> metaData) {
-		service.writeMetaData(getPath(req), metaData);
-	}
-
-	private String getPath(HttpServletRequest req) {
-		return req.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE).toString();
-	}
-
-	private Link currentContentSelfLink(UriComponentsBuilder uriBuilder, HttpServletRequest req) {
-		return currentContentSelfLink(uriBuilder, getPath(req));
-	}
-
-	private Link currentContentSelfLink(UriComponentsBuilder uriBuilder, String path) {
-		return new Link(uriBuilder.path(path).toUriString()).withSelfRel();
-	}
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+
+/**
+ * created: 25.10.2016
+ * 
+ * @author Tobias Bruns
+ */
+@RestController
+@RequestMapping(path = "/**")
+public class ContentController {
+
+	private static final String HAL_JSON = "application/hal+json";
+	private static final List<MediaType> JSON_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+			MediaType.parseMediaType("application/*+json"));
+
+	@Autowired
+	private StorageService service;
+	@Autowired
+	private ObjectMapper mapper;
+	@Autowired
+	private BinaryContentWriter binaryContentWriter;
+	@Autowired
+	private BulkService bulkService;
+
+	@RequestMapping(method = RequestMethod.GET, produces = "application/json")
+	public @ResponseBody Resource<Content<?>> loadContent(HttpServletRequest req, ServletWebRequest webRequest,
+			UriComponentsBuilder uriBuilder, @RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit, @RequestParam(required = false) List<String> fields) {
+		ContentHandle handle = service.resolve(getPath(req));
+		String representation = getJsonRepresentation(req);
+		if (isNotModified(handle, representation, webRequest)) {
+			return null;
+		}
+		Content<?> content = readContent(handle, new Paging(cursor, limit), fields,
+				read -> setValidators(read, representation, webRequest.getResponse()));
+
+		Resource<Content<?>> result = new Resource<>(content, currentContentSelfLink(uriBuilder, req));
+		addNextLink(result, content, req);
+		return result;
+	}
+
+	@RequestMapping(method = RequestMethod.GET)
+	public void readBinaryContent(HttpServletRequest req, ServletWebRequest webRequest,
+			UriComponentsBuilder uriBuilder, HttpServletResponse response, @RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit, @RequestParam(required = false) List<String> fields) {
+		ContentHandle handle = service.resolve(getPath(req));
+		boolean jsonContent = handle.getHeader().isJsonContent();
+		if (jsonContent) {
+			String representation = getJsonRepresentation(req);
+			if (isNotModified(handle, representation, webRequest)) {
+				return;
+			}
+			writeJsonContent(readContent(handle, new Paging(cursor, limit), fields,
+					read -> setValidators(read, representation, response)), uriBuilder, req, response);
+			return;
+		}
+
+		String encoding = selectEncoding(handle, req, response);
+		if (isNotModified(handle, getRepresentation(getContentType(handle.getHeader()), encoding), webRequest)) {
+			return;
+		}
+		if (encoding != null) {
+			writeStoredContent(handle, req, response);
+		} else
+			writeBinaryContent((Content<InputStream>) readContent(handle, new Paging(cursor, limit), fields,
+					read -> setValidators(read, getRepresentation(getContentType(read.getHeader()), null), response)),
+					req, response);
+	}
+
+	/**
+	 * The content may have been written since its handle was checked, so the validators sent are those of the version
+	 * read.
+	 */
+	private void setValidators(ContentHandle read, String representation, HttpServletResponse response) {
+		response.setHeader(HttpHeaders.ETAG, read.getETag(representation));
+		response.setDateHeader(HttpHeaders.LAST_MODIFIED, read.getLastModified());
+	}
+
+	/**
+	 * Compressed content is sent as it is stored, if the client accepts its encoding, and decoded otherwise.
+	 *
+	 * @return the encoding to send the content with, null if it is sent decoded
+	 */
+	private String selectEncoding(ContentHandle handle, HttpServletRequest req, HttpServletResponse response) {
+		Optional<String> storedEncoding = handle.getMetaData().getContentEncoding();
+		if (!storedEncoding.isPresent()) {
+			return null;
+		}
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		return ContentEncodingService.isAccepted(req.getHeader(HttpHeaders.ACCEPT_ENCODING), storedEncoding.get())
+				? storedEncoding.get() : null;
+	}
+
+	/**
+	 * The encoded and the decoded content are different representations, which must not share an entity tag.
+	 */
+	private String getRepresentation(String contentType, String encoding) {
+		return encoding == null ? contentType : contentType + "+" + encoding;
+	}
+
+	/**
+	 * The stored bytes are the encoded content, so its size and any requested ranges refer to them. The headers are
+	 * those of the version read, which may be stored without encoding by now.
+	 */
+	private void writeStoredContent(ContentHandle handle, HttpServletRequest req, HttpServletResponse response) {
+		InputStream data = service.loadStoredContentData(handle, read -> {
+			String encoding = read.getMetaData().getContentEncoding().orElse(null);
+			response.setContentType(getContentType(read.getHeader()));
+			if (encoding != null) {
+				response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+			}
+			response.setContentLengthLong(read.getAttributes().size());
+			setValidators(read, getRepresentation(getContentType(read.getHeader()), encoding), response);
+		});
+		binaryContentWriter.write(data, req, response);
+	}
+
+	/**
+	 * JSON content can be reduced to the fields given as JSON Pointers.
+	 */
+	private Content<?> readContent(ContentHandle handle, Paging paging, List<String> fields,
+			Consumer<ContentHandle> versionRead) {
+		TokenFilter filter = fields == null ? null : service.compileFields(fields);
+		Content<?> content = service.readContent(handle, paging, versionRead);
+		return filter == null ? content : service.selectFields(content, filter);
+	}
+
+	private boolean isNotModified(ContentHandle handle, String representation, ServletWebRequest webRequest) {
+		return webRequest.checkNotModified(handle.getETag(representation), handle.getLastModified());
+	}
+
+	/**
+	 * Folder listings are paged by the query, so each page is a representation of its own.
+	 */
+	private String getJsonRepresentation(HttpServletRequest req) {
+		return req.getQueryString() == null ? HAL_JSON : HAL_JSON + "?" + req.getQueryString();
+	}
+
+	private void addNextLink(Resource<?> resource, Content<?> content, HttpServletRequest req) {
+		if (content.getContent() instanceof Map) {
+			Object next = ((Map<?, ?>) content.getContent()).get(ContentService.NEXT_CURSOR);
+			if (next != null) {
+				resource.add(new Link(ServletUriComponentsBuilder.fromRequest(req)
+						.replaceQueryParam("cursor", next).build().encode().toUriString(), Link.REL_NEXT));
+			}
+		}
+	}
+
+	private void writeBinaryContent(Content<InputStream> content, HttpServletRequest req,
+			HttpServletResponse response) {
+		content.getHeader().getContentType().ifPresent(response::setContentType);
+		if (!content.getMetaData().getContentEncoding().isPresent()) {
+			// the size of encoded content is its stored size
+			content.getHeader().getSize().ifPresent(response::setContentLengthLong);
+		}
+		binaryContentWriter.write(content.getContent(), req, response);
+	}
+
+	private void writeJsonContent(Content<?> content, UriComponentsBuilder uriBuilder, HttpServletRequest req,
+			HttpServletResponse response) {
+		response.setContentType(HAL_JSON);
+		Resource<Content<?>> result = new Resource<>(content, currentContentSelfLink(uriBuilder, req));
+		addNextLink(result, content, req);
+		try {
+			mapper.writeValue(response.getOutputStream(), result);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing json content", e);
+		}
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "projection=metadata", produces = "application/json")
+	public @ResponseBody Resource<MetaDatum[]> loadMetadata(HttpServletRequest req, UriComponentsBuilder uriBuilder) {
+
+		Link selfLink = new Link(uriBuilder.path(getPath(req)).queryParam("projection", "metadata").toUriString());
+
+		Collection<MetaDatum> metaData = service.loadMetaData(getPath(req)).getData();
+		return new Resource<>(metaData.toArray(new MetaDatum[metaData.size()]), selfLink);
+	}
+
+	/**
+	 * Finds the content below the folder carrying the MetaDatum given as "key:value", paged like the folder listing.
+	 */
+	@RequestMapping(method = RequestMethod.GET, params = "query", produces = "application/json")
+	public @ResponseBody Resource<Content<?>> queryContent(HttpServletRequest req, UriComponentsBuilder uriBuilder,
+			@RequestParam String query, @RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit) {
+		ContentHandle handle = service.resolve(getPath(req));
+		Content<?> content = service.queryContent(handle, query, new Paging(cursor, limit));
+
+		Resource<Content<?>> result = new Resource<>(content, currentContentSelfLink(uriBuilder, req));
+		addNextLink(result, content, req);
+		return result;
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "projection=content")
+	public void loadContentData(HttpServletRequest req, ServletWebRequest webRequest, HttpServletResponse response)
+			throws IOException {
+		ContentHandle handle = service.resolve(getPath(req));
+		ContentHeader header = handle.getHeader();
+
+		if (header.getType() == ContentItemType.NODE) {
+			response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value());
+			return;
+		}
+		String encoding = selectEncoding(handle, req, response);
+		if (isNotModified(handle, getRepresentation(getContentType(header), encoding), webRequest)) {
+			return;
+		}
+
+		if (encoding != null) {
+			writeStoredContent(handle, req, response);
+		} else {
+			InputStream data = service.loadContentData(handle, read -> {
+				response.setContentType(getContentType(read.getHeader()));
+				setValidators(read, getRepresentation(getContentType(read.getHeader()), null), response);
+			});
+			binaryContentWriter.write(data, req, response);
+		}
+	}
+
+	private String getContentType(ContentHeader header) {
+		return header.getContentType().orElse("application/octet-stream");
+	}
+
+	@RequestMapping(method = RequestMethod.POST, consumes = { "application/json", "application/*+json" })
+	@ResponseStatus(code = HttpStatus.CREATED)
+	public HttpEntity<?> createJsonContent(HttpServletRequest req, @RequestBody Content<Map<String, Object>> content,
+			UriComponentsBuilder uriBuilder) {
+		setContentTypeIfEmpty(content, "application/json");
+		String newPath = service.createContent(getPath(req), content);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("Location", uriBuilder.path(newPath).toUriString());
+		return new HttpEntity<>(headers);
+	}
+
+	private void setContentTypeIfEmpty(Content<?> content, String contentType) {
+		if (!content.getHeader().getContentType().isPresent()) {
+			content.getHeader().setContentType(contentType);
+		}
+	}
+
+	@RequestMapping(method = RequestMethod.POST, consumes = "multipart/form-data")
+	@ResponseStatus(code = HttpStatus.CREATED)
+	public HttpEntity<?> createBinaryContent(HttpServletRequest req, @RequestParam("file") MultipartFile file,
+			UriComponentsBuilder uriBuilder) {
+		String path = service.createContent(getPath(req), buildContent(file));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("Location", uriBuilder.path(path).toUriString());
+		return new HttpEntity<>(headers);
+	}
+
+	/**
+	 * Creates content from the raw request body, which is streamed directly into the storage. JSON documents are only
+	 * accepted as JSON content.
+	 */
+	@RequestMapping(method = RequestMethod.POST, params = "name")
+	@ResponseStatus(code = HttpStatus.CREATED)
+	public HttpEntity<?> createStreamedContent(HttpServletRequest req, @RequestParam("name") String name,
+			UriComponentsBuilder uriBuilder) throws IOException, HttpMediaTypeNotSupportedException {
+		checkNotJson(req);
+		String path = service.createContent(getPath(req), buildContent(req, name));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("Location", uriBuilder.path(path).toUriString());
+		return new HttpEntity<>(headers);
+	}
+
+	/**
+	 * Applies create, update and delete operations on the content below the folder, given as one JSON object per line.
+	 * The result of every operation is answered as a line of its own.
+	 */
+	@RequestMapping(method = RequestMethod.POST, consumes = BulkService.NDJSON)
+	public void applyBulk(HttpServletRequest req, HttpServletResponse response) throws IOException {
+		String path = getPath(req);
+		response.setContentType(BulkService.NDJSON);
+		bulkService.apply(path, req.getInputStream(), response.getOutputStream());
+	}
+
+	private Content<InputStream> buildContent(MultipartFile file) {
+		try {
+			return buildContent(file.getInputStream(), file.getContentType(), file.getOriginalFilename());
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading incoming file", e);
+		}
+	}
+
+	private Content<InputStream> buildContent(HttpServletRequest req, String name) throws IOException {
+		String contentType = req.getContentType() == null ? "application/octet-stream" : req.getContentType();
+		return buildContent(req.getInputStream(), contentType, name);
+	}
+
+	private Content<InputStream> buildContent(InputStream data, String contentType, String name) {
+		Content<InputStream> content = new Content<>();
+		content.setContent(data);
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setContentType(contentType);
+		content.getHeader().setName(name);
+		return content;
+	}
+
+	/**
+	 * Writes to content are conditional on the version the client knows, if it sends an If-Match header. The new
+	 * version is returned as entity tag.
+	 */
+	@RequestMapping(method = RequestMethod.PUT, consumes = { "application/json", "application/*+json" })
+	public Resource<Content<?>> changeContent(HttpServletRequest req, HttpServletResponse response,
+			@RequestBody Content<Map<String, Object>> content, UriComponentsBuilder uriBuilder) {
+		String path = service.writeContent(getPath(req), content, getIfMatch(req));
+		setETag(response, path);
+		return new Resource<>(content, currentContentSelfLink(uriBuilder, path));
+	}
+
+	@RequestMapping(method = RequestMethod.PUT, consumes = "multipart/form-data")
+	@ResponseStatus(code = HttpStatus.NO_CONTENT)
+	public void changeBinaryContent(HttpServletRequest req, HttpServletResponse response,
+			@RequestParam("file") MultipartFile file, UriComponentsBuilder uriBuilder) {
+		String path = service.writeContent(getPath(req), buildContent(file), getIfMatch(req));
+		setETag(response, path);
+	}
+
+	/**
+	 * Replaces content by the raw request body, which is streamed directly into the storage. The content is renamed
+	 * if a new name is given. JSON documents are only accepted as JSON content.
+	 */
+	@RequestMapping(method = RequestMethod.PUT)
+	@ResponseStatus(code = HttpStatus.NO_CONTENT)
+	public void changeStreamedContent(HttpServletRequest req, HttpServletResponse response,
+			@RequestParam(name = "name", required = false) String name)
+			throws IOException, HttpMediaTypeNotSupportedException {
+		checkNotJson(req);
+		String path = getPath(req);
+		path = service.writeContent(path, buildContent(req, name == null ? StringUtils.getFilename(path) : name),
+				getIfMatch(req));
+		setETag(response, path);
+	}
+
+	/**
+	 * Streaming a JSON document would store the JSON envelope as binary content.
+	 */
+	private void checkNotJson(HttpServletRequest req) throws HttpMediaTypeNotSupportedException {
+		if (req.getContentType() == null) {
+			return;
+		}
+		MediaType contentType;
+		try {
+			contentType = MediaType.parseMediaType(req.getContentType());
+		} catch (InvalidMediaTypeException e) {
+			return;
+		}
+		if (JSON_TYPES.stream().anyMatch(json -> json.includes(contentType))) {
+			throw new HttpMediaTypeNotSupportedException(contentType, JSON_TYPES);
+		}
+	}
+
+	/**
+	 * The entity tag of a written path is that of the representation a plain GET answers with, JSON for folders and
+	 * JSON content and the decoded content type for binary content.
+	 */
+	private void setETag(HttpServletResponse response, String path) {
+		ContentHandle handle = service.resolve(path);
+		ContentHeader header = handle.getHeader();
+		String representation = header.isJsonContent() ? HAL_JSON : getRepresentation(getContentType(header), null);
+		response.setHeader(HttpHeaders.ETAG, handle.getETag(representation));
+	}
+
+	/**
+	 * Applies a JSON Patch or JSON Merge Patch to JSON content. If-Match makes the patch conditional on the version
+	 * the client knows, the new version is returned as entity tag.
+	 */
+	@RequestMapping(method = RequestMethod.PATCH, consumes = { JsonPatch.JSON_PATCH, JsonPatch.MERGE_PATCH })
+	@ResponseStatus(code = HttpStatus.NO_CONTENT)
+	public void patchContent(HttpServletRequest req, HttpServletResponse response, @RequestBody JsonNode patch) {
+		String path = getPath(req);
+		ContentHandle handle = service.resolve(path);
+		IfMatch ifMatch = getIfMatch(req);
+		// fails early, the version is checked again while the content is locked
+		ifMatch.check(handle.getMetaData());
+		boolean mergePatch = MediaType.parseMediaType(req.getContentType())
+				.isCompatibleWith(MediaType.parseMediaType(JsonPatch.MERGE_PATCH));
+		service.patchContent(handle, patch, mergePatch, ifMatch);
+		setETag(response, path);
+	}
+
+	private IfMatch getIfMatch(HttpServletRequest req) {
+		return IfMatch.parse(req.getHeader(HttpHeaders.IF_MATCH));
+	}
+
+	@RequestMapping(method = RequestMethod.PUT, params = "projection=metadata")
+	@ResponseStatus(code = HttpStatus.NO_CONTENT)
+	public void changeMetaData(HttpServletRequest req, HttpServletResponse response,
+			@RequestBody Collection<MetaDatum> metaData) {
+		String path = getPath(req);
+		service.writeMetaData(path, metaData, getIfMatch(req));
+		setETag(response, path);
+	}
+
+	private String getPath(HttpServletRequest req) {
+		return req.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE).toString();
+	}
+
+	private Link currentContentSelfLink(UriComponentsBuilder uriBuilder, HttpServletRequest req) {
+		return currentContentSelfLink(uriBuilder, getPath(req));
+	}
+
+	private Link currentContentSelfLink(UriComponentsBuilder uriBuilder, String path) {
+		return new Link(uriBuilder.path(path).toUriString()).withSelfRel();
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.StringUtils;
+
+import de.tobiasbruns.content.storage.StorageBackend.DataWriter;
+
+/**
+ * Compresses content of the configured content types at rest. The encoding is named like the HTTP content coding, so
+ * the stored bytes can be sent as they are to clients accepting it.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class ContentEncodingService {
+
+	public static final String GZIP = "gzip";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	@Value("${storage.compression.content_types:}")
+	private String[] compressedContentTypes = new String[0];
+
+	private final List<MimeType> compressedTypes = new ArrayList<>();
+
+	@PostConstruct
+	public void initBean() {
+		for (String contentType : compressedContentTypes) {
+			if (StringUtils.hasText(contentType)) {
+				compressedTypes.add(MimeType.valueOf(contentType.trim()));
+			}
+		}
+	}
+
+	/**
+	 * @return whether any content is stored encoded
+	 */
+	public boolean isEnabled() {
+		return !compressedTypes.isEmpty();
+	}
+
+	/**
+	 * @return the encoding to store content of the type with, null if it is stored as it is, like content with a
+	 *         malformed type
+	 */
+	public String selectEncoding(String contentType) {
+		if (contentType == null || compressedTypes.isEmpty()) {
+			return null;
+		}
+		MimeType type;
+		try {
+			type = MimeType.valueOf(contentType);
+		} catch (InvalidMimeTypeException e) {
+			return null;
+		}
+		for (MimeType compressedType : compressedTypes) {
+			if (compressedType.includes(type)) {
+				return GZIP;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return a writer encoding the data of the given writer, or the writer itself if encoding is null
+	 */
+	public DataWriter encode(String encoding, DataWriter writer) {
+		return encode(encoding, writer, size -> {
+		});
+	}
+
+	/**
+	 * @param decodedSize
+	 *            gets the number of bytes written before encoding, once the data was encoded
+	 * @return a writer encoding the data of the given writer, or the writer itself if encoding is null
+	 */
+	public DataWriter encode(String encoding, DataWriter writer, LongConsumer decodedSize) {
+		if (encoding == null) {
+			return writer;
+		}
+		checkEncoding(encoding);
+		return out -> {
+			GZIPOutputStream gzip = new GZIPOutputStream(new CloseShieldOutputStream(out), BUFFER_SIZE);
+			CountingOutputStream counter = new CountingOutputStream(new CloseShieldOutputStream(gzip));
+			// the writer may close the stream it gets, the compressed data must be finished anyway
+			writer.write(counter);
+			gzip.finish();
+			decodedSize.accept(counter.getByteCount());
+		};
+	}
+
+	/**
+	 * @return a stream decoding the stored data, or the stream itself if encoding is null
+	 */
+	public InputStream decode(String encoding, InputStream in) {
+		if (encoding == null) {
+			return in;
+		}
+		checkEncoding(encoding);
+		try {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		} catch (IOException e) {
+			try {
+				in.close();
+			} catch (IOException closeException) {
+				e.addSuppressed(closeException);
+			}
+			throw new RuntimeException("Error decoding " + encoding + " content", e);
+		}
+	}
+
+	private void checkEncoding(String encoding) {
+		if (!GZIP.equals(encoding)) {
+			throw new IllegalStateException("Unsupported content encoding " + encoding);
+		}
+	}
+
+	/**
+	 * Checks an Accept-Encoding header for the encoding, either named or matched by the wildcard, with a quality above
+	 * zero.
+	 */
+	public static boolean isAccepted(String acceptEncoding, String encoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean wildcard = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim();
+			boolean accepted = getQuality(parts) > 0;
+			if (name.equalsIgnoreCase(encoding)) {
+				return accepted;
+			}
+			if (name.equals("*")) {
+				wildcard = accepted;
+			}
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	private static double getQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String[] param = parts[i].split("=", 2);
+			if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+				try {
+					return Double.parseDouble(param[1].trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+}
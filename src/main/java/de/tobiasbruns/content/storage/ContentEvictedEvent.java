@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a storage backend dropped content to free capacity, so everything kept for its path can be dropped
+ * as well. It is published while the path is locked.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class ContentEvictedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String path;
+
+	public ContentEvictedEvent(Object source, String path) {
+		super(source);
+		this.path = path;
+	}
+
+	public String getPath() {
+		return path;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * A path resolved once for reading, holding its attributes and its own and inherited MetaData.
+ * 
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class ContentHandle {
+
+	private final String path;
+	private final BasicFileAttributes attributes;
+	private final MetaData metaData;
+	private final ContentHeader header;
+
+	ContentHandle(String path, BasicFileAttributes attributes, MetaData metaData, ContentHeader header) {
+		this.path = path;
+		this.attributes = attributes;
+		this.metaData = metaData;
+		this.header = header;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public BasicFileAttributes getAttributes() {
+		return attributes;
+	}
+
+	public MetaData getMetaData() {
+		return metaData;
+	}
+
+	public ContentHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * Files are modified when their content is written, the file modification time is shared with every path linked
+	 * to the same blob.
+	 */
+	public long getLastModified() {
+		if (attributes.isRegularFile() && metaData.getModified() != 0) {
+			return TimeUnit.MICROSECONDS.toMillis(metaData.getModified());
+		}
+		return attributes.lastModifiedTime().toMillis();
+	}
+
+	/**
+	 * Builds a strong entity tag for the given representation of the content. It changes whenever the file or its
+	 * own or inherited MetaData change.
+	 */
+	public String getETag(String representation) {
+		StringBuilder state = new StringBuilder(representation).append('|').append(attributes.size()).append('|')
+				.append(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)).append('|')
+				.append(metaData.getModified()).append('|').append(metaData.getContentType().orElse(""));
+		metaData.getData().stream()
+				.sorted(Comparator.comparing(MetaDatum::getKey, Comparator.nullsFirst(Comparator.naturalOrder())))
+				.forEach(datum -> state.append('|').append(datum.getKey()).append('=').append(datum.getValue())
+						.append(datum.isInherited() ? "*" : ""));
+		return "\"" + metaData.getVersion() + "." + metaData.getCreated() + "-"
+				+ DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+}
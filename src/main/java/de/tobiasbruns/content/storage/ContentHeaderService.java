@@ -1,65 +1,65 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.File;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-
-import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
-import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
-import de.tobiasbruns.content.storage.exception.UnprocessableEntityException.MessageCode;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-@Service
-public class ContentHeaderService {
-
-   @Autowired
-   private FileSystemService fsService;
-   @Autowired
-   private MetaDataService metaDataService;
-
-   public ContentHeader getContentHeader(String path) {
-      File file = fsService.getFile(path);
-
-      ContentHeader header = getContentHeader(file);
-      if (file.isFile()) {
-         header.setContentType(getContentType(path));
-      }
-      return header;
-   }
-
-   public ContentHeader getContentHeader(File file) {
-      ContentHeader header = new ContentHeader();
-      header.setType(file.isDirectory() ? ContentItemType.NODE : ContentItemType.LEAF);
-      header.setName(file.getName());
-
-      if (file.isFile()) {
-         header.setSize(file.length());
-      }
-      return header;
-   }
-
-   private String getContentType(String path) {
-      return metaDataService.loadMetaData(path).getContentType()
-            .orElseThrow(() -> new UnprocessableEntityException(MessageCode.MISSING_CONTENT_TYPE));
-   }
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.springframework.stereotype.Service;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException.MessageCode;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class ContentHeaderService {
+
+   /**
+    * @param metaData
+    *           the MetaData of the content, null if the header is built without them, as listed in its folder
+    */
+   public ContentHeader getContentHeader(String name, BasicFileAttributes attributes, MetaData metaData) {
+      ContentHeader header = new ContentHeader();
+      header.setType(attributes.isDirectory() ? ContentItemType.NODE : ContentItemType.LEAF);
+      header.setName(name);
+
+      if (attributes.isRegularFile()) {
+         header.setSize(attributes.size());
+         if (metaData != null) {
+            // encoded content is reported with its size before encoding
+            metaData.getDecodedSize().ifPresent(header::setSize);
+            header.setContentType(getContentType(metaData));
+         }
+      }
+      return header;
+   }
+
+   /**
+    * Builds the header of a file without its MetaData, as listed in its folder.
+    */
+   public ContentHeader getContentHeader(String name, BasicFileAttributes attributes) {
+      return getContentHeader(name, attributes, null);
+   }
+
+   private String getContentType(MetaData metaData) {
+      return metaData.getContentType()
+            .orElseThrow(() -> new UnprocessableEntityException(MessageCode.MISSING_CONTENT_TYPE));
+   }
+}
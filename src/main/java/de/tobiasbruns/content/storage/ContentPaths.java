@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Operations on logical content paths.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public final class ContentPaths {
+
+	private ContentPaths() {
+	}
+
+	public static List<String> split(String path) {
+		return Arrays.stream(path.split("[/\\\\]+")).filter(name -> !name.isEmpty()).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the path with a single leading slash and no empty segments
+	 */
+	public static String normalize(String path) {
+		return "/" + String.join("/", split(path));
+	}
+
+	public static String getName(String path) {
+		List<String> names = split(path);
+		return names.isEmpty() ? "" : names.get(names.size() - 1);
+	}
+
+	public static String getParent(String path) {
+		List<String> names = split(path);
+		return "/" + String.join("/", names.subList(0, Math.max(0, names.size() - 1)));
+	}
+
+	public static String resolve(String path, String name) {
+		return path.endsWith("/") ? path + name : path + "/" + name;
+	}
+}
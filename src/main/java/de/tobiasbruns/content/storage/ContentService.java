@@ -1,129 +1,304 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.io.IOUtils;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-@Service
-public class ContentService {
-
-	@Autowired
-	private FileSystemService fsService;
-	@Autowired
-	private ObjectMapper objectMapper;
-	@Autowired
-	private ContentHeaderService headerService;
-
-	public void writeJsonData(String path, Map<String, Object> data) {
-		try {
-			objectMapper.writeValue(fsService.getOrCreateFile(path), data);
-		} catch (IOException e) {
-			throw new RuntimeException("Error writing json data", e);
-		}
-	}
-
-	public Map<String, Object> readJsonData(String path) {
-		try {
-			File file = fsService.getFile(path);
-
-			if (file.isFile()) {
-				return objectMapper.readValue(file, new TypeReference<Map<String, Object>>() {
-				});
-			}
-			return readFolder(file);
-		} catch (IOException e) {
-			throw new RuntimeException("Error when reading json data", e);
-		}
-	}
-
-	public InputStream readBinaryData(String path) {
-		File file = fsService.getFile(path);
-		if (file.isFile()) return buildFileInputStream(file);
-		throw new RuntimeException("Wrong File-Type found: " + file);
-	}
-
-	private InputStream buildFileInputStream(File file) {
-		try {
-			return new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException("Error reading Binary Content", e);
-		}
-	}
-
-	private Map<String, Object> readFolder(File folder) {
-		Map<String, Object> result = new HashMap<>();
-		List<ContentHeader> headers = new ArrayList<>();
-		result.put("sub", headers);
-
-		File[] childFiles = folder.listFiles();
-		for (File file : childFiles) {
-			headers.add(headerService.getContentHeader(file));
-		}
-
-		return result;
-	}
-
-	public String createFolder(String path, String name) {
-		fsService.createDirectory(path, name);
-		return path + "/" + name;
-	}
-
-	public String createJsonContent(String path, String name, Map<String, Object> data) {
-		String newPath = path + "/" + name;
-		writeJsonData(newPath, data);
-		return newPath;
-	}
-
-	public String createBinaryContent(String path, String name, InputStream data) {
-		String newPath = path + "/" + name;
-		writeBinaryData(newPath, data);
-		return newPath;
-	}
-
-	public void writeBinaryData(String newPath, InputStream data) {
-		File file = fsService.getOrCreateFile(newPath);
-		try (OutputStream out = new FileOutputStream(file)) {
-			IOUtils.copy(data, out);
-		} catch (IOException e) {
-			throw new RuntimeException("Error writing Binary Data.", e);
-		} finally {
-			IOUtils.closeQuietly(data);
-		}
-	}
-
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.StorageBackend.DataWriter;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException.MessageCode;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class ContentService {
+
+	static final String NEXT_CURSOR = "next";
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	@Autowired
+	private StorageBackend backend;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private ContentHeaderService headerService;
+	@Autowired(required = false)
+	private BlobStore blobStore;
+	@Autowired
+	private JsonContentCache jsonCache;
+	@Autowired
+	private ContentEncodingService encodingService;
+	@Autowired
+	private MetaDataQueryIndex queryIndex;
+	@Autowired
+	private MetaDataService metaDataService;
+	@Value("${storage.listing.default_limit:1000}")
+	private int defaultListingLimit = 1000;
+	@Value("${storage.listing.max_limit:10000}")
+	private int maxListingLimit = 10000;
+
+	/**
+	 * @return the encoding content of the given type is stored with, null if it is stored as it is
+	 */
+	public String selectEncoding(String contentType) {
+		return encodingService.selectEncoding(contentType);
+	}
+
+	/**
+	 * Stores the data with the encoding of the MetaData, which gets the size of the data before encoding.
+	 */
+	public void writeJsonData(String path, Map<String, Object> data, MetaData metaData) {
+		try {
+			backend.writeFile(path, encode(metaData, out -> objectMapper.writeValue(out, data)));
+		} finally {
+			jsonCache.invalidate(path);
+		}
+	}
+
+	/**
+	 * Applies a JSON Patch or JSON Merge Patch to the stored document, which is replaced atomically by the result. The
+	 * MetaData of the content gets the size of the result before encoding.
+	 */
+	public void patchJsonData(ContentHandle handle, JsonNode patch, boolean mergePatch, MetaData metaData) {
+		JsonNode document;
+		try (InputStream in = encodingService.decode(getEncoding(handle), backend.openStream(handle.getPath()))) {
+			document = objectMapper.readTree(in);
+		} catch (IOException e) {
+			throw new RuntimeException("Error when reading json data", e);
+		}
+		JsonNode patched = mergePatch ? JsonPatch.merge(document, patch) : JsonPatch.apply(document, patch);
+		if (!patched.isObject()) {
+			// JSON content is always an object
+			throw new UnprocessableEntityException(MessageCode.INVALID_PATCH);
+		}
+		try {
+			backend.writeFile(handle.getPath(), encode(metaData, out -> objectMapper.writeValue(out, patched)));
+		} finally {
+			jsonCache.invalidate(handle.getPath());
+		}
+	}
+
+	public Map<String, Object> readJsonData(ContentHandle handle) {
+		return readJsonData(handle, Paging.FIRST_PAGE);
+	}
+
+	public Map<String, Object> readJsonData(ContentHandle handle, Paging paging) {
+		if (!handle.getAttributes().isRegularFile()) {
+			return readFolder(handle.getPath(), paging);
+		}
+		TypeReference<Map<String, Object>> type = new TypeReference<Map<String, Object>>() {
+		};
+		try {
+			try (InputStream in = openJsonStream(handle)) {
+				return objectMapper.readValue(in, type);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error when reading json data", e);
+		}
+	}
+
+	/**
+	 * Returns the stored JSON document without parsing it, so it can be written to the response as it is. The document
+	 * is opened right away, so it must be called while the content is locked.
+	 */
+	public RawJson readRawJsonData(ContentHandle handle) {
+		if (jsonCache.isCacheable(handle.getAttributes()) && getEncoding(handle) == null) {
+			return new RawJson(readJsonBytes(handle));
+		}
+		return new RawJson(openJsonStream(handle));
+	}
+
+	private InputStream openJsonStream(ContentHandle handle) {
+		InputStream in = jsonCache.isCacheable(handle.getAttributes())
+				? new ByteArrayInputStream(readJsonBytes(handle))
+				: backend.openStream(handle.getPath());
+		return encodingService.decode(getEncoding(handle), in);
+	}
+
+	/**
+	 * Returns the stored bytes of JSON content, which are cached for the current version of the file. Compressed
+	 * content is cached compressed.
+	 */
+	byte[] readJsonBytes(ContentHandle handle) {
+		return jsonCache.get(handle.getPath(), handle.getAttributes(), () -> {
+			try (InputStream in = backend.openStream(handle.getPath())) {
+				return IOUtils.toByteArray(in);
+			} catch (IOException e) {
+				throw new RuntimeException("Error when reading json data", e);
+			}
+		});
+	}
+
+	/**
+	 * Removes all cached data of the given path and, if it is a folder, of all of its children.
+	 */
+	public void evictCachedData(String path) {
+		jsonCache.invalidateTree(path);
+	}
+
+	public InputStream readBinaryData(ContentHandle handle) {
+		return encodingService.decode(getEncoding(handle), readStoredData(handle));
+	}
+
+	/**
+	 * Returns the data as it is stored, which is compressed, if the content has a content encoding.
+	 */
+	public InputStream readStoredData(ContentHandle handle) {
+		if (!handle.getAttributes().isRegularFile()) {
+			throw new RuntimeException("Wrong File-Type found: " + handle.getPath());
+		}
+		InputStream in = backend.openStream(handle.getPath());
+		Optional<String> blob = handle.getMetaData().getBlob();
+		if (in instanceof FileContentInputStream && blob.isPresent() && blobStore != null) {
+			((FileContentInputStream) in)
+					.setImmutableFile(blobStore.getImmutableFile(blob.get(), handle.getAttributes()));
+		}
+		return in;
+	}
+
+	private String getEncoding(ContentHandle handle) {
+		return handle.getMetaData().getContentEncoding().orElse(null);
+	}
+
+	/**
+	 * The MetaData describing how the data are stored are never taken from the client.
+	 */
+	private DataWriter encode(MetaData metaData, DataWriter writer) {
+		metaData.setBlob(null);
+		metaData.setDecodedSize(null);
+		return encodingService.encode(metaData.getContentEncoding().orElse(null), writer, metaData::setDecodedSize);
+	}
+
+	/**
+	 * Lists the children of the folder, all of them unless a limit or a cursor is given. Every page is read by a scan
+	 * of the whole folder, so reading a page takes time linear in the size of the folder, while only the names of the
+	 * page are held in memory.
+	 */
+	private Map<String, Object> readFolder(String path, Paging paging) {
+		boolean paged = paging.getLimit() != null || paging.getCursor() != null;
+		int limit = paged ? getListingLimit(paging) : Integer.MAX_VALUE - 1;
+		List<String> children = backend.listDirectory(path, paging.getCursor(), limit + 1,
+				name -> !MetaDataService.isMetaDataFile(name) && !BlobStore.isBlobPath(path + "/" + name));
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("sub", new FolderListing(children.subList(0, Math.min(limit, children.size())),
+				name -> readChildHeader(path, name)));
+		if (children.size() > limit) {
+			result.put(NEXT_CURSOR, children.get(limit - 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the content below the folder whose own or inherited MetaData hold the key with the value, paged like the
+	 * folder listing by the last path of the previous page.
+	 */
+	public Map<String, Object> findContent(String path, String key, String value, Paging paging) {
+		int limit = getListingLimit(paging);
+		List<String> matches = queryIndex.find(path, key, value, paging.getCursor(), limit + 1);
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("matches", matches.subList(0, Math.min(limit, matches.size())));
+		if (matches.size() > limit) {
+			result.put(NEXT_CURSOR, matches.get(limit - 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Encoded children are listed with their size before encoding, which is only found in their MetaData.
+	 */
+	private ContentHeader readChildHeader(String path, String name) {
+		try {
+			String childPath = ContentPaths.resolve(path, name);
+			BasicFileAttributes attributes = backend.getAttributes(childPath);
+			ContentHeader header = headerService.getContentHeader(name, attributes);
+			if (encodingService.isEnabled() && attributes.isRegularFile()) {
+				metaDataService.loadOwnMetaData(childPath, false).getDecodedSize().ifPresent(header::setSize);
+			}
+			return header;
+		} catch (ResourceNotFoundException e) {
+			// deleted while listing
+			return null;
+		}
+	}
+
+	private int getListingLimit(Paging paging) {
+		if (paging.getLimit() == null) {
+			return defaultListingLimit;
+		}
+		if (paging.getLimit() < 1) {
+			throw new UnprocessableEntityException(MessageCode.INVALID_LIMIT);
+		}
+		return Math.min(paging.getLimit(), maxListingLimit);
+	}
+
+	public String createFolder(String path, String name) {
+		backend.createDirectory(path, name);
+		return path + "/" + name;
+	}
+
+	public String createJsonContent(String path, String name, Map<String, Object> data, MetaData metaData) {
+		String newPath = path + "/" + name;
+		writeJsonData(newPath, data, metaData);
+		return newPath;
+	}
+
+	public String createBinaryContent(String path, String name, InputStream data, MetaData metaData) {
+		String newPath = path + "/" + name;
+		writeBinaryData(newPath, data, metaData);
+		return newPath;
+	}
+
+	/**
+	 * Stores the data with the encoding of the MetaData, which gets the size of the data before encoding.
+	 */
+	public void writeBinaryData(String newPath, InputStream data, MetaData metaData) {
+		try {
+			DataWriter writer = encode(metaData, out -> IOUtils.copy(data, out, COPY_BUFFER_SIZE));
+			if (blobStore != null && blobStore.isEnabled()) {
+				metaData.setBlob(blobStore.store(newPath, writer));
+			} else {
+				backend.writeFile(newPath, writer);
+			}
+		} finally {
+			IOUtils.closeQuietly(data);
+			jsonCache.invalidate(newPath);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * InputStream of stored content, which is transferred by its file channel. Content stored as blob may be sent by the
+ * path of its blob instead, which never changes while it exists.
+ * 
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class FileContentInputStream extends FileInputStream implements RandomAccessContent {
+
+	private Path immutableFile;
+
+	public FileContentInputStream(File file) throws FileNotFoundException {
+		super(file);
+	}
+
+	/**
+	 * @return a file with the same content, which is never changed, so it can still be read after the stream was
+	 *         closed, null if there is none
+	 */
+	public Path getImmutableFile() {
+		return immutableFile;
+	}
+
+	public void setImmutableFile(Path immutableFile) {
+		this.immutableFile = immutableFile;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return getChannel().size();
+	}
+
+	/**
+	 * Transfers the bytes by the file channel, which copies them through a buffer, as the target is no channel.
+	 */
+	@Override
+	public void transferTo(long position, long count, OutputStream out) throws IOException {
+		FileChannel channel = getChannel();
+		WritableByteChannel target = Channels.newChannel(out);
+		long transferred = 0;
+		while (transferred < count) {
+			long written = channel.transferTo(position + transferred, count - transferred, target);
+			if (written <= 0) {
+				throw new EOFException("File ended before position " + (position + count));
+			}
+			transferred += written;
+		}
+	}
+}
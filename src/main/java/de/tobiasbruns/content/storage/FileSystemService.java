@@ -1,103 +1,492 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.File;
-import java.io.IOException;
-
-import javax.annotation.PostConstruct;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-
-import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
-import de.tobiasbruns.content.storage.exception.ResourceNotFoundException.MessageCode;
-import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-@Service
-public class FileSystemService {
-
-   @Value("${storage.root}")
-   private String storageRootDirectory;
-   @Value("${storage.delete_on_shutdown}")
-   private boolean deleteOnShutdown;
-
-   private File root;
-
-   @PostConstruct
-   public void initBean() {
-      root = new File(storageRootDirectory);
-      root.mkdirs();
-      if (deleteOnShutdown) {
-         root.deleteOnExit();
-      }
-   }
-
-   public File getFile(String relativePath) {
-      File file = new File(root, relativePath);
-      if (file.exists()) {
-         return file;
-      }
-      throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
-   }
-
-   public File getOrCreateFile(String relativePath) {
-      try {
-         return getFile(relativePath);
-      } catch (ResourceNotFoundException e) {
-         return createFile("/", relativePath);
-      }
-   }
-
-   public File[] getDirContent(String relativePath) {
-      File dir = getFile(relativePath);
-      if (dir.isDirectory()) {
-         return dir.listFiles();
-      }
-      throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_NOT_DIR);
-   }
-
-   public File createFile(String basePath, String name) {
-      File base = getFile(basePath);
-      File newFile = new File(base, name);
-      try {
-         newFile.createNewFile();
-      } catch (IOException e) {
-         throw new RuntimeException("Error creating File" + newFile.getAbsolutePath(), e);
-      }
-      return newFile;
-   }
-
-   public String renameFile(String oldPath, String newName) {
-      File old = getFile(oldPath);
-      File newFile = new File(old.getParentFile(), newName);
-      //TODO check if newFile exists - error?
-      old.renameTo(newFile);
-      return newFile.getAbsolutePath().substring(root.getAbsolutePath().length()).replace("\\", "/");
-   }
-
-   public File createDirectory(String basePath, String name) {
-      File base = getFile(basePath);
-      File newDir = new File(base, name);
-      newDir.mkdirs();
-      return newDir;
-   }
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException.MessageCode;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemService implements StorageBackend {
+
+   static final String TEMP_FILE_PREFIX = ".";
+   static final String TEMP_FILE_SUFFIX = ".tmp";
+
+   /**
+    * Defines what is forced to the disk before a written file is visible.
+    */
+   public enum SyncPolicy {
+      NONE, FILE, FILE_AND_DIRECTORY
+   }
+
+   /**
+    * Defines how logical paths are mapped onto the file system. SHARDED stores the children of every folder in two
+    * levels of shard directories chosen by the hash of their names, so that no physical directory grows too large.
+    * The layout of an existing storage must not be changed.
+    */
+   public enum Layout {
+      FLAT, SHARDED
+   }
+
+   @Value("${storage.root}")
+   private String storageRootDirectory;
+   @Value("${storage.delete_on_shutdown}")
+   private boolean deleteOnShutdown;
+   @Value("${storage.fsync:NONE}")
+   private SyncPolicy syncPolicy = SyncPolicy.NONE;
+   @Value("${storage.layout:FLAT}")
+   private Layout layout = Layout.FLAT;
+   @Value("${storage.mmap.enabled:false}")
+   private boolean mmapEnabled;
+   @Value("${storage.mmap.max_file_size:1048576}")
+   private long mmapMaxFileSize;
+   @Value("${storage.mmap.capacity:268435456}")
+   private long mmapCapacity;
+   @Value("${storage.locks.stripes:1024}")
+   private int folderLockStripes = 1024;
+
+   private File root;
+   private MappedFileCache mappedFiles;
+   // serialize the updates of the modification time of a folder, but not of different folders
+   private Object[] folderLocks;
+   // the directories the current batch of the thread wrote to, null outside of a batch
+   private final ThreadLocal<Set<Path>> pendingDirectorySyncs = new ThreadLocal<>();
+
+   @PostConstruct
+   public void initBean() {
+      root = new File(storageRootDirectory);
+      root.mkdirs();
+      if (deleteOnShutdown) {
+         root.deleteOnExit();
+      }
+      if (mmapEnabled) {
+         mappedFiles = new MappedFileCache(mmapMaxFileSize, mmapCapacity);
+      }
+      folderLocks = new Object[folderLockStripes];
+      for (int i = 0; i < folderLocks.length; i++) {
+         folderLocks[i] = new Object();
+      }
+   }
+
+   public File getFile(String relativePath) {
+      File file = toFile(relativePath);
+      if (file.exists()) {
+         return file;
+      }
+      throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+   }
+
+   public File toFile(String relativePath) {
+      if (layout == Layout.FLAT) {
+         return new File(root, relativePath);
+      }
+      File file = root;
+      for (String name : ContentPaths.split(relativePath)) {
+         file = new File(getShardDirectory(file, name), name);
+      }
+      return file;
+   }
+
+   private File getShardDirectory(File dir, String name) {
+      String hash = DigestUtils.md5DigestAsHex(name.getBytes(StandardCharsets.UTF_8));
+      return new File(new File(dir, hash.substring(0, 2)), hash.substring(2, 4));
+   }
+
+   /**
+    * Returns the file for the path, whose shard directories are created as needed, if its folder exists.
+    */
+   private File prepareFile(String relativePath) {
+      if (!toFile(ContentPaths.getParent(relativePath)).isDirectory()) {
+         throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+      }
+      File file = toFile(relativePath);
+      file.getParentFile().mkdirs();
+      return file;
+   }
+
+   @Override
+   public BasicFileAttributes getAttributes(String relativePath) {
+      try {
+         return Files.readAttributes(toFile(relativePath).toPath(), BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+         throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND, e);
+      } catch (IOException e) {
+         throw new RuntimeException("Error reading attributes of " + relativePath, e);
+      }
+   }
+
+   /**
+    * Opens the file, or its memory-mapped copy if mapping is enabled and the file is small enough. MetaData files and
+    * the index are read once into their own caches, so they are never mapped.
+    */
+   @Override
+   public InputStream openStream(String relativePath) {
+      File file = toFile(relativePath);
+      try {
+         if (mappedFiles != null && isContentFile(relativePath, file)) {
+            InputStream mapped = mappedFiles.open(relativePath, file);
+            if (mapped != null) {
+               return mapped;
+            }
+         }
+         return new FileContentInputStream(file);
+      } catch (FileNotFoundException | NoSuchFileException e) {
+         throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND, e);
+      } catch (IOException e) {
+         throw new RuntimeException("Error opening " + relativePath, e);
+      }
+   }
+
+   private static boolean isContentFile(String relativePath, File file) {
+      return !MetaDataService.isMetaDataFile(file.getName()) && !MetaDataIndex.isIndexPath(relativePath);
+   }
+
+   public File getOrCreateFile(String relativePath) {
+      try {
+         return getFile(relativePath);
+      } catch (ResourceNotFoundException e) {
+         return createFile("/", relativePath);
+      }
+   }
+
+   /**
+    * Writes the file by a temporary file in the same directory, which replaces the target file atomically when it is
+    * complete. Readers therefore either see the old or the new content, never a partially written file.
+    */
+   @Override
+   public void writeFile(String relativePath, DataWriter writer) {
+      File target = prepareFile(relativePath);
+      Path tempFile = buildTempFile(target.getParentFile(), target.getName());
+      try {
+         writeTempFile(tempFile, writer);
+         invalidateMapping(relativePath);
+         replaceFile(tempFile, target.toPath());
+         touchFolder(relativePath);
+      } catch (IOException e) {
+         throw new RuntimeException("Error writing File " + target.getAbsolutePath(), e);
+      } finally {
+         deleteQuietly(tempFile);
+         invalidateMapping(relativePath);
+      }
+   }
+
+   /**
+    * Makes the file a hard link to the existing file, replacing it atomically. If the file system does not support
+    * hard links, the existing file is copied instead.
+    */
+   public File linkFile(Path existing, String relativePath) {
+      File target = prepareFile(relativePath);
+      Path tempLink = buildTempFile(target.getParentFile(), target.getName());
+      try {
+         try {
+            Files.createLink(tempLink, existing);
+         } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(existing, tempLink);
+         }
+         invalidateMapping(relativePath);
+         replaceFile(tempLink, target.toPath());
+         touchFolder(relativePath);
+         return target;
+      } catch (IOException e) {
+         throw new RuntimeException("Error linking File " + target.getAbsolutePath(), e);
+      } finally {
+         deleteQuietly(tempLink);
+         invalidateMapping(relativePath);
+      }
+   }
+
+   Path buildTempFile(File dir, String name) {
+      String random = Long.toHexString(ThreadLocalRandom.current().nextLong());
+      return new File(dir, TEMP_FILE_PREFIX + name + "." + random + TEMP_FILE_SUFFIX).toPath();
+   }
+
+   void writeTempFile(Path tempFile, DataWriter writer) throws IOException {
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+         OutputStream out = Channels.newOutputStream(channel);
+         writer.write(new CloseShieldOutputStream(out));
+         out.flush();
+         if (syncPolicy != SyncPolicy.NONE) {
+            channel.force(true);
+         }
+      }
+   }
+
+   /**
+    * Moves the file into place, atomically if the file system supports it, and syncs the directory if requested.
+    */
+   void replaceFile(Path source, Path target) throws IOException {
+      moveIntoPlace(source, target);
+      if (syncPolicy == SyncPolicy.FILE_AND_DIRECTORY) {
+         Set<Path> pendingDirectories = pendingDirectorySyncs.get();
+         if (pendingDirectories != null) {
+            pendingDirectories.add(target.getParent());
+         } else {
+            syncDirectory(target.getParent());
+         }
+      }
+   }
+
+   /**
+    * Syncs every directory the writes replaced files in once, after all of them are done.
+    */
+   @Override
+   public void runBatch(Runnable writes) {
+      if (pendingDirectorySyncs.get() != null) {
+         writes.run();
+         return;
+      }
+      Set<Path> pendingDirectories = new LinkedHashSet<>();
+      pendingDirectorySyncs.set(pendingDirectories);
+      try {
+         writes.run();
+      } finally {
+         pendingDirectorySyncs.remove();
+         pendingDirectories.forEach(this::syncDirectory);
+      }
+   }
+
+   /**
+    * In the sharded layout children are created, replaced and deleted in shard directories, which leaves the folder
+    * itself untouched. So its modification time, which the validators of folders are built from, is advanced like in
+    * the flat layout.
+    */
+   private void touchFolder(String relativePath) {
+      if (layout != Layout.SHARDED) {
+         return;
+      }
+      String folderPath = ContentPaths.normalize(ContentPaths.getParent(relativePath));
+      Path folder = toFile(folderPath).toPath();
+      synchronized (folderLocks[Math.floorMod(folderPath.hashCode(), folderLocks.length)]) {
+         try {
+            long lastModified = Files.getLastModifiedTime(folder).to(TimeUnit.MICROSECONDS);
+            long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+            Files.setLastModifiedTime(folder, FileTime.from(Math.max(now, lastModified + 1), TimeUnit.MICROSECONDS));
+         } catch (IOException e) {
+            throw new RuntimeException("Error touching folder " + relativePath, e);
+         }
+      }
+   }
+
+   private boolean isTempFile(String name) {
+      return name.startsWith(TEMP_FILE_PREFIX) && name.endsWith(TEMP_FILE_SUFFIX);
+   }
+
+   private void moveIntoPlace(Path source, Path target) throws IOException {
+      try {
+         Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+         Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   private void syncDirectory(Path dir) {
+      try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+         channel.force(true);
+      } catch (IOException e) {
+         // not every platform allows to open a directory, the file itself is synced anyway
+      }
+   }
+
+   /**
+    * Drops the mapping before the file is replaced, some platforms refuse to replace mapped files, and afterwards, in
+    * case a reader mapped the old file in the meantime.
+    */
+   private void invalidateMapping(String relativePath) {
+      if (mappedFiles != null) {
+         mappedFiles.invalidate(relativePath);
+      }
+   }
+
+   private void invalidateMappedTree(String relativePath) {
+      if (mappedFiles != null) {
+         mappedFiles.invalidateTree(relativePath);
+      }
+   }
+
+   void deleteQuietly(Path file) {
+      try {
+         Files.deleteIfExists(file);
+      } catch (IOException e) {
+         // a left over temporary file does not harm the content
+      }
+   }
+
+   public File[] getDirContent(String relativePath) {
+      return listDirectory(relativePath, null, Integer.MAX_VALUE).stream()
+            .map(name -> toFile(ContentPaths.resolve(relativePath, name))).toArray(File[]::new);
+   }
+
+   /**
+    * Lists the children of the directory in the order of their names, starting after the given name. Only the
+    * requested number of names is held in memory, however large the directory is, but every call scans the whole
+    * directory, so paging through it reads it once per page.
+    */
+   public List<String> listDirectory(String relativePath, String after, int count) {
+      return listDirectory(relativePath, after, count, name -> true);
+   }
+
+   /**
+    * Lists the children as above, but only those whose names are accepted by the filter. Temporary files of writes
+    * in progress are never listed.
+    */
+   @Override
+   public List<String> listDirectory(String relativePath, String after, int count, Predicate<String> nameFilter) {
+      Path dir = toFile(relativePath).toPath();
+      DirectoryStream.Filter<Path> filter = child -> {
+         String name = child.getFileName().toString();
+         return (after == null || name.compareTo(after) > 0) && !isTempFile(name) && nameFilter.test(name);
+      };
+      NavigableMap<String, Path> children = new TreeMap<>();
+      try {
+         collectChildren(dir, layout == Layout.SHARDED ? 2 : 0, filter, count, children);
+      } catch (NotDirectoryException e) {
+         throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_NOT_DIR);
+      } catch (NoSuchFileException e) {
+         throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND, e);
+      } catch (IOException e) {
+         throw new RuntimeException("Error listing directory " + relativePath, e);
+      }
+      return new ArrayList<>(children.keySet());
+   }
+
+   private void collectChildren(Path dir, int shardLevels, DirectoryStream.Filter<Path> filter, int count,
+         NavigableMap<String, Path> children) throws IOException {
+      if (shardLevels > 0) {
+         try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path shard : shards) {
+               collectChildren(shard, shardLevels - 1, filter, count, children);
+            }
+         }
+         return;
+      }
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, filter)) {
+         for (Path child : stream) {
+            String name = child.getFileName().toString();
+            if (children.size() < count) {
+               children.put(name, child);
+            } else if (name.compareTo(children.lastKey()) < 0) {
+               children.pollLastEntry();
+               children.put(name, child);
+            }
+         }
+      }
+   }
+
+   public File createFile(String basePath, String name) {
+      getFile(basePath);
+      File newFile = prepareFile(basePath + "/" + name);
+      try {
+         newFile.createNewFile();
+      } catch (IOException e) {
+         throw new RuntimeException("Error creating File" + newFile.getAbsolutePath(), e);
+      }
+      touchFolder(basePath + "/" + name);
+      return newFile;
+   }
+
+   /**
+    * Renames the file or folder, an existing file at the new path is not replaced.
+    */
+   @Override
+   public String renameFile(String oldPath, String newName) {
+      File old = getFile(oldPath);
+      String newPath = ContentPaths.resolve(ContentPaths.getParent(oldPath), newName);
+      File newFile = prepareFile(newPath);
+      invalidateMappedTree(oldPath);
+      invalidateMappedTree(newPath);
+      try {
+         Files.move(old.toPath(), newFile.toPath());
+      } catch (FileAlreadyExistsException e) {
+         throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_EXISTS);
+      } catch (NoSuchFileException e) {
+         throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND, e);
+      } catch (IOException e) {
+         throw new RuntimeException("Error renaming " + oldPath + " to " + newName, e);
+      } finally {
+         invalidateMappedTree(oldPath);
+      }
+      touchFolder(newPath);
+      return newPath;
+   }
+
+   @Override
+   public void createDirectory(String basePath, String name) {
+      getFile(basePath);
+      toFile(ContentPaths.resolve(basePath, name)).mkdirs();
+      touchFolder(ContentPaths.resolve(basePath, name));
+   }
+
+   @Override
+   public void delete(String relativePath) {
+      File file = getFile(relativePath);
+      invalidateMappedTree(relativePath);
+      try {
+         if (file.isDirectory()) {
+            FileUtils.deleteDirectory(file);
+         } else {
+            Files.delete(file.toPath());
+         }
+      } catch (IOException e) {
+         throw new RuntimeException("Error deleting " + relativePath, e);
+      }
+      touchFolder(relativePath);
+   }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * The children of a folder. Their headers are built while the listing is written, so the headers of a page are never
+ * held in memory together. Children without a header, e.g. deleted in the meantime, are skipped.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class FolderListing extends JsonSerializable.Base {
+
+	private final List<String> children;
+	private final Function<String, ContentHeader> headerBuilder;
+
+	public FolderListing(List<String> children, Function<String, ContentHeader> headerBuilder) {
+		this.children = children;
+		this.headerBuilder = headerBuilder;
+	}
+
+	public List<String> getChildren() {
+		return children;
+	}
+
+	@Override
+	public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+		gen.writeStartArray();
+		for (String child : children) {
+			ContentHeader header = headerBuilder.apply(child);
+			if (header != null) {
+				serializers.defaultSerializeValue(header, gen);
+			}
+		}
+		gen.writeEndArray();
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+			throws IOException {
+		serialize(gen, serializers);
+	}
+}
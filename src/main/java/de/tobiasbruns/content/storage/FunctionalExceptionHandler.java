@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import de.tobiasbruns.content.storage.exception.FunctionalException;
+
+/**
+ * Answers every {@link FunctionalException} with its HTTP status, the body is rendered by the error controller.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@ControllerAdvice
+public class FunctionalExceptionHandler {
+
+	@ExceptionHandler(FunctionalException.class)
+	public void handleFunctionalException(FunctionalException e, HttpServletResponse response) throws IOException {
+		response.sendError(e.getHttpStatus().value(), e.getMessage());
+	}
+}
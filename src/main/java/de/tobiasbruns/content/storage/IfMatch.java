@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+
+import de.tobiasbruns.content.storage.exception.PreconditionFailedException;
+import de.tobiasbruns.content.storage.exception.PreconditionFailedException.MessageCode;
+
+/**
+ * The versions an If-Match header allows a write for. The entity tags of all representations of content start with
+ * its version and creation stamp, so every one of them identifies the version, weak tags never match. A version given
+ * without a creation stamp matches the version of any content at the path.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public final class IfMatch {
+
+	public static final IfMatch ANY = new IfMatch(null);
+
+	// "version" or "version.created", null if any version is allowed
+	private final Set<String> versions;
+
+	private IfMatch(Set<String> versions) {
+		this.versions = versions;
+	}
+
+	public static IfMatch parse(String ifMatch) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return ANY;
+		}
+		Set<String> versions = new HashSet<>();
+		for (String eTag : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+			String tag = eTag.trim();
+			if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+				String value = tag.substring(1, tag.length() - 1);
+				int separator = value.indexOf('-');
+				try {
+					versions.add(parseVersion(separator < 0 ? value : value.substring(0, separator)));
+				} catch (NumberFormatException e) {
+					// not issued by us, so it matches no version
+				}
+			}
+		}
+		return new IfMatch(versions);
+	}
+
+	/**
+	 * Allows the write for the given version of any content at the path only.
+	 */
+	public static IfMatch ofVersion(long version) {
+		return new IfMatch(Collections.singleton(Long.toString(version)));
+	}
+
+	/**
+	 * @throws PreconditionFailedException
+	 *            if the version of the stored MetaData is not allowed
+	 */
+	public void check(MetaData metaData) {
+		check(metaData.getVersion(), metaData.getCreated());
+	}
+
+	/**
+	 * @throws PreconditionFailedException
+	 *            if the version of the content with the creation stamp is not allowed
+	 */
+	public void check(long version, long created) {
+		if (versions != null && !versions.contains(key(version, created))
+				&& !versions.contains(Long.toString(version))) {
+			throw new PreconditionFailedException(MessageCode.VERSION_MISMATCH);
+		}
+	}
+
+	private static String parseVersion(String version) {
+		int separator = version.indexOf('.');
+		if (separator < 0) {
+			return Long.toString(Long.parseLong(version));
+		}
+		return key(Long.parseLong(version.substring(0, separator)), Long.parseLong(version.substring(separator + 1)));
+	}
+
+	private static String key(long version, long created) {
+		return version + "." + created;
+	}
+}
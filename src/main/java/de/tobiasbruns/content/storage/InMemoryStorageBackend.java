@@ -0,0 +1,504 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import de.tobiasbruns.content.storage.OffHeapPagePool.PageData;
+import de.tobiasbruns.content.storage.OffHeapPagePool.PageOutputStream;
+import de.tobiasbruns.content.storage.PathLocks.PathLock;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException.MessageCode;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * Keeps the content tree in memory. Content bodies live in off-heap pages, only the tree itself and the small
+ * metadata files stay on the heap. Files are immutable once written, so readers never need a lock; structural
+ * changes of a folder are serialized on the folder.
+ *
+ * When the capacity is exhausted, writes fail unless LRU eviction is configured, which drops the least recently used
+ * content files, whose paths are not locked. A {@link ContentEvictedEvent} is published for each of them, so their
+ * MetaData are deleted like those of deleted content.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+	public enum Eviction {
+		NONE, LRU
+	}
+
+	@Value("${storage.memory.capacity:268435456}")
+	private long capacity;
+	@Value("${storage.memory.page_size:8192}")
+	private int pageSize;
+	@Value("${storage.memory.eviction:NONE}")
+	private Eviction eviction;
+	@Autowired
+	private PathLocks pathLocks;
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private OffHeapPagePool pagePool;
+	/** off-heap files in access order, guarded by itself */
+	private final LinkedHashMap<Node, Boolean> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+
+	private static final AtomicLong lastNodeId = new AtomicLong();
+
+	private final AtomicLong lastTimestamp = new AtomicLong();
+	private final Node root = Node.directory(nextTimestamp());
+
+	@PostConstruct
+	public void init() {
+		pagePool = new OffHeapPagePool(capacity, pageSize);
+	}
+
+	public long getUsedBytes() {
+		return pagePool.getUsedBytes();
+	}
+
+	/**
+	 * @return the attributes of the current version of the node, which do not change with the node
+	 */
+	@Override
+	public BasicFileAttributes getAttributes(String path) {
+		return new Attributes(findNode(path));
+	}
+
+	@Override
+	public InputStream openStream(String path) {
+		Node node = findNode(path);
+		if (node.isDirectory()) {
+			throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+		}
+		if (node.bytes != null) {
+			return new ByteArrayInputStream(node.bytes);
+		}
+		InputStream in = node.pages.openStream();
+		if (in == null) {
+			// released by a concurrent replace, delete or eviction
+			throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+		}
+		synchronized (recentlyUsed) {
+			recentlyUsed.get(node);
+		}
+		return in;
+	}
+
+	@Override
+	public void writeFile(String path, DataWriter writer) {
+		Node dir = findDirectory(ContentPaths.getParent(path));
+		String name = ContentPaths.getName(path);
+		Node file = MetaDataService.isMetaDataFile(name) ? writeToHeap(path, writer) : writeToPages(path, writer);
+		Node replaced;
+		synchronized (dir) {
+			Node existing = dir.children.get(name);
+			if (existing != null && existing.isDirectory()) {
+				release(file);
+				throw new RuntimeException("Error writing " + path + ", it is a directory");
+			}
+			file.attach(dir, name);
+			replaced = dir.children.put(name, file);
+			dir.touch(nextTimestamp());
+			if (file.pages != null) {
+				synchronized (recentlyUsed) {
+					recentlyUsed.put(file, Boolean.TRUE);
+				}
+			}
+		}
+		release(replaced);
+	}
+
+	private Node writeToHeap(String path, DataWriter writer) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(path, writer, out);
+		return Node.file(out.toByteArray(), nextTimestamp());
+	}
+
+	private Node writeToPages(String path, DataWriter writer) {
+		PageOutputStream out = pagePool.newOutputStream(this::allocatePage);
+		try {
+			write(path, writer, out);
+		} catch (RuntimeException e) {
+			out.discard();
+			throw e;
+		}
+		return Node.file(out.toPageData(), nextTimestamp());
+	}
+
+	private void write(String path, DataWriter writer, OutputStream out) {
+		try {
+			writer.write(out);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing " + path, e);
+		}
+	}
+
+	/**
+	 * @return -1 if no page is free and none can be freed by eviction
+	 */
+	private int allocatePage() {
+		int page;
+		while ((page = pagePool.allocate()) < 0) {
+			if (eviction != Eviction.LRU || !evictLeastRecentlyUsed()) {
+				return -1;
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Evicts the least recently used file whose path can be locked right away. Locked paths are read or written right
+	 * now, among them the path written by the caller.
+	 *
+	 * @return false if there is nothing left to evict
+	 */
+	private boolean evictLeastRecentlyUsed() {
+		Node victim = null;
+		PathLock lock = null;
+		synchronized (recentlyUsed) {
+			Iterator<Node> it = recentlyUsed.keySet().iterator();
+			while (lock == null && it.hasNext()) {
+				victim = it.next();
+				lock = pathLocks.tryLockExclusive(victim.getPath());
+			}
+			if (lock == null) {
+				return false;
+			}
+			it.remove();
+		}
+		try (PathLock held = lock) {
+			Node dir = victim.parent;
+			String path;
+			synchronized (dir) {
+				path = victim.getPath();
+				if (!dir.children.remove(victim.name, victim)) {
+					// detached concurrently, whoever did it releases the node
+					return true;
+				}
+				dir.touch(nextTimestamp());
+			}
+			release(victim);
+			eventPublisher.publishEvent(new ContentEvictedEvent(this, path));
+		}
+		return true;
+	}
+
+	@Override
+	public List<String> listDirectory(String path, String after, int count, Predicate<String> nameFilter) {
+		Node dir = findNode(path);
+		if (!dir.isDirectory()) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_NOT_DIR);
+		}
+		ConcurrentNavigableMap<String, Node> children = after == null ? dir.children
+				: dir.children.tailMap(after, false);
+		List<String> names = new ArrayList<>();
+		for (String name : children.keySet()) {
+			if (names.size() >= count) {
+				break;
+			}
+			if (nameFilter.test(name)) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	@Override
+	public void createDirectory(String basePath, String name) {
+		Node dir = findDirectory(basePath);
+		for (String childName : ContentPaths.split(name)) {
+			synchronized (dir) {
+				Node child = dir.children.get(childName);
+				if (child == null) {
+					child = Node.directory(nextTimestamp());
+					child.attach(dir, childName);
+					dir.children.put(childName, child);
+					dir.touch(nextTimestamp());
+				}
+				dir = child;
+			}
+		}
+	}
+
+	@Override
+	public String renameFile(String oldPath, String newName) {
+		String parentPath = ContentPaths.getParent(oldPath);
+		Node dir = findDirectory(parentPath);
+		synchronized (dir) {
+			if (!dir.children.containsKey(ContentPaths.getName(oldPath))) {
+				throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+			}
+			if (dir.children.containsKey(newName)) {
+				throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_EXISTS);
+			}
+			Node node = dir.children.remove(ContentPaths.getName(oldPath));
+			node.attach(dir, newName);
+			dir.children.put(newName, node);
+			dir.touch(nextTimestamp());
+		}
+		return ContentPaths.resolve(parentPath, newName);
+	}
+
+	@Override
+	public void delete(String path) {
+		Node dir = findDirectory(ContentPaths.getParent(path));
+		Node removed;
+		synchronized (dir) {
+			removed = dir.children.remove(ContentPaths.getName(path));
+			if (removed == null) {
+				throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+			}
+			dir.touch(nextTimestamp());
+		}
+		release(removed);
+	}
+
+	/**
+	 * Gives the pages of a detached node and all its descendants back to the pool. Streams that are still open keep
+	 * their pages until they are closed.
+	 */
+	private void release(Node node) {
+		if (node == null) {
+			return;
+		}
+		if (node.isDirectory()) {
+			node.children.values().forEach(this::release);
+		} else if (node.pages != null && node.released.compareAndSet(false, true)) {
+			synchronized (recentlyUsed) {
+				recentlyUsed.remove(node);
+			}
+			node.pages.release();
+		}
+	}
+
+	private Node findNode(String path) {
+		Node node = root;
+		for (String name : ContentPaths.split(path)) {
+			node = node.isDirectory() ? node.children.get(name) : null;
+			if (node == null) {
+				throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+			}
+		}
+		return node;
+	}
+
+	private Node findDirectory(String path) {
+		Node node = findNode(path);
+		if (!node.isDirectory()) {
+			throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+		}
+		return node;
+	}
+
+	/**
+	 * Modification times are unique, so they identify a version of a file just like on a file system with nanosecond
+	 * timestamps.
+	 */
+	private FileTime nextTimestamp() {
+		long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		return FileTime.from(lastTimestamp.updateAndGet(last -> Math.max(now, last + 1)), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The attributes of a node when they were read, the id of the node is its file key.
+	 */
+	private static class Attributes implements BasicFileAttributes {
+		private final FileTime lastModifiedTime;
+		private final FileTime creationTime;
+		private final boolean directory;
+		private final long size;
+		private final Long fileKey;
+
+		Attributes(Node node) {
+			this.lastModifiedTime = node.lastModifiedTime();
+			this.creationTime = node.creationTime();
+			this.directory = node.isDirectory();
+			this.size = node.size();
+			this.fileKey = node.id;
+		}
+
+		@Override
+		public FileTime lastModifiedTime() {
+			return lastModifiedTime;
+		}
+
+		@Override
+		public FileTime lastAccessTime() {
+			return lastModifiedTime;
+		}
+
+		@Override
+		public FileTime creationTime() {
+			return creationTime;
+		}
+
+		@Override
+		public boolean isRegularFile() {
+			return !directory;
+		}
+
+		@Override
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		@Override
+		public boolean isSymbolicLink() {
+			return false;
+		}
+
+		@Override
+		public boolean isOther() {
+			return false;
+		}
+
+		@Override
+		public long size() {
+			return size;
+		}
+
+		@Override
+		public Object fileKey() {
+			return fileKey;
+		}
+	}
+
+	/**
+	 * A file holding its data on the heap or in off-heap pages, or a folder holding its children.
+	 */
+	private static class Node implements BasicFileAttributes {
+		private final byte[] bytes;
+		private final PageData pages;
+		private final ConcurrentSkipListMap<String, Node> children;
+		private final FileTime creationTime;
+		private volatile FileTime lastModifiedTime;
+		private final AtomicBoolean released = new AtomicBoolean();
+		private final long id = lastNodeId.incrementAndGet();
+		// the folder and name of the node, needed for eviction
+		private volatile Node parent;
+		private volatile String name;
+
+		private Node(byte[] bytes, PageData pages, FileTime creationTime) {
+			this.bytes = bytes;
+			this.pages = pages;
+			this.children = bytes == null && pages == null ? new ConcurrentSkipListMap<>() : null;
+			this.creationTime = creationTime;
+			this.lastModifiedTime = creationTime;
+		}
+
+		static Node directory(FileTime creationTime) {
+			return new Node(null, null, creationTime);
+		}
+
+		static Node file(byte[] bytes, FileTime creationTime) {
+			return new Node(bytes, null, creationTime);
+		}
+
+		static Node file(PageData pages, FileTime creationTime) {
+			return new Node(null, pages, creationTime);
+		}
+
+		void attach(Node parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		void touch(FileTime time) {
+			lastModifiedTime = time;
+		}
+
+		String getPath() {
+			return parent == null ? "/" : ContentPaths.resolve(parent.getPath(), name);
+		}
+
+		@Override
+		public FileTime lastModifiedTime() {
+			return lastModifiedTime;
+		}
+
+		@Override
+		public FileTime lastAccessTime() {
+			return lastModifiedTime;
+		}
+
+		@Override
+		public FileTime creationTime() {
+			return creationTime;
+		}
+
+		@Override
+		public boolean isRegularFile() {
+			return children == null;
+		}
+
+		@Override
+		public boolean isDirectory() {
+			return children != null;
+		}
+
+		@Override
+		public boolean isSymbolicLink() {
+			return false;
+		}
+
+		@Override
+		public boolean isOther() {
+			return false;
+		}
+
+		@Override
+		public long size() {
+			if (bytes != null) {
+				return bytes.length;
+			}
+			return pages == null ? 0 : pages.size();
+		}
+
+		@Override
+		public Object fileKey() {
+			return id;
+		}
+	}
+}
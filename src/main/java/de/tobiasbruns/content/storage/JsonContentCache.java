@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the stored bytes of recently read JSON content. Entries are only valid for the version of the file they were
+ * read from, identified by its file key, modification time and size, so a changed file is never served from the cache
+ * even without invalidation. The cache is bounded by the cached bytes and drops the least recently used entries first.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Component
+public class JsonContentCache {
+
+	@Value("${storage.json_cache.capacity:67108864}")
+	private long capacity;
+	@Value("${storage.json_cache.max_entry_size:1048576}")
+	private long maxEntrySize;
+
+	private final LinkedHashMap<String, CachedJson> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedBytes;
+	// counts invalidations, so data loaded concurrently to an invalidation is not cached
+	private long generation;
+
+	public JsonContentCache() {
+	}
+
+	JsonContentCache(long capacity, long maxEntrySize) {
+		this.capacity = capacity;
+		this.maxEntrySize = maxEntrySize;
+	}
+
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	public boolean isCacheable(BasicFileAttributes attributes) {
+		return attributes.isRegularFile() && attributes.size() <= Math.min(maxEntrySize, capacity);
+	}
+
+	/**
+	 * Returns the cached data of the file version or loads and caches it. The returned array is shared and must not be
+	 * modified.
+	 */
+	public byte[] get(String path, BasicFileAttributes attributes, Supplier<byte[]> loader) {
+		String key = ContentPaths.normalize(path);
+		long startGeneration;
+		synchronized (this) {
+			CachedJson cached = entries.get(key);
+			if (cached != null && cached.isVersionOf(attributes)) {
+				return cached.data;
+			}
+			startGeneration = generation;
+		}
+		byte[] data = loader.get();
+		// data of a different size has been written after the attributes were read
+		if (data.length == attributes.size() && data.length <= Math.min(maxEntrySize, capacity)) {
+			synchronized (this) {
+				if (generation == startGeneration) {
+					CachedJson replaced = entries.put(key, new CachedJson(attributes, data));
+					cachedBytes += data.length - (replaced == null ? 0 : replaced.data.length);
+					evictExceedingEntries();
+				}
+			}
+		}
+		return data;
+	}
+
+	private void evictExceedingEntries() {
+		Iterator<CachedJson> it = entries.values().iterator();
+		while (cachedBytes > capacity && it.hasNext()) {
+			cachedBytes -= it.next().data.length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Drops the cached data of the file at the path.
+	 */
+	public synchronized void invalidate(String path) {
+		generation++;
+		CachedJson removed = entries.remove(ContentPaths.normalize(path));
+		if (removed != null) {
+			cachedBytes -= removed.data.length;
+		}
+	}
+
+	/**
+	 * Drops the cached data of the file at the path and of all files below it.
+	 */
+	public synchronized void invalidateTree(String path) {
+		generation++;
+		String key = ContentPaths.normalize(path);
+		Iterator<Map.Entry<String, CachedJson>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, CachedJson> entry = it.next();
+			if (entry.getKey().equals(key) || entry.getKey().startsWith(key + "/")) {
+				cachedBytes -= entry.getValue().data.length;
+				it.remove();
+			}
+		}
+	}
+
+	private static class CachedJson {
+		// files replaced by a rename or linked to another blob have another key, even at the same time and size
+		private final Object fileKey;
+		private final FileTime lastModified;
+		private final long size;
+		private final byte[] data;
+
+		CachedJson(BasicFileAttributes attributes, byte[] data) {
+			this.fileKey = attributes.fileKey();
+			this.lastModified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+			this.data = data;
+		}
+
+		boolean isVersionOf(BasicFileAttributes attributes) {
+			return Objects.equals(fileKey, attributes.fileKey()) && lastModified.equals(attributes.lastModifiedTime())
+					&& size == attributes.size();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException.MessageCode;
+
+/**
+ * Applies JSON Patch (RFC 6902) and JSON Merge Patch (RFC 7396) documents to JSON trees. The given document is
+ * changed in place.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public final class JsonPatch {
+
+	public static final String JSON_PATCH = "application/json-patch+json";
+	public static final String MERGE_PATCH = "application/merge-patch+json";
+
+	private JsonPatch() {
+	}
+
+	/**
+	 * Applies the operations of a JSON Patch one after the other. If an operation fails, the patch is rejected as a
+	 * whole, so the document must not be stored in that case.
+	 *
+	 * @return the patched document
+	 */
+	public static JsonNode apply(JsonNode document, JsonNode patch) {
+		if (!patch.isArray()) {
+			throw invalidPatch();
+		}
+		JsonNode result = document;
+		for (JsonNode operation : patch) {
+			result = applyOperation(result, operation);
+		}
+		return result;
+	}
+
+	private static JsonNode applyOperation(JsonNode document, JsonNode operation) {
+		String op = operation.path("op").asText();
+		JsonPointer path = getPointer(operation, "path");
+		switch (op) {
+		case "add":
+			return add(document, path, getValue(operation).deepCopy());
+		case "remove":
+			remove(document, path);
+			return document;
+		case "replace":
+			if (path.matches()) {
+				return getValue(operation).deepCopy();
+			}
+			remove(document, path);
+			return add(document, path, getValue(operation).deepCopy());
+		case "move": {
+			JsonPointer from = getPointer(operation, "from");
+			if (path.toString().startsWith(from.toString() + "/")) {
+				// a value can not be moved into one of its children
+				throw invalidPatch();
+			}
+			JsonNode value = remove(document, from);
+			return add(document, path, value);
+		}
+		case "copy":
+			return add(document, path, get(document, getPointer(operation, "from")).deepCopy());
+		case "test":
+			if (!get(document, path).equals(getValue(operation))) {
+				throw new UnprocessableEntityException(MessageCode.PATCH_TEST_FAILED);
+			}
+			return document;
+		default:
+			throw invalidPatch();
+		}
+	}
+
+	private static JsonNode add(JsonNode document, JsonPointer path, JsonNode value) {
+		if (path.matches()) {
+			return value;
+		}
+		JsonNode parent = get(document, path.head());
+		String name = path.last().getMatchingProperty();
+		if (parent.isObject()) {
+			((ObjectNode) parent).set(name, value);
+		} else if (parent.isArray()) {
+			ArrayNode array = (ArrayNode) parent;
+			if ("-".equals(name)) {
+				array.add(value);
+			} else {
+				array.insert(getIndex(array, name, array.size()), value);
+			}
+		} else {
+			throw invalidPatch();
+		}
+		return document;
+	}
+
+	private static JsonNode remove(JsonNode document, JsonPointer path) {
+		if (path.matches()) {
+			// the whole document can only be replaced
+			throw invalidPatch();
+		}
+		JsonNode parent = get(document, path.head());
+		String name = path.last().getMatchingProperty();
+		if (parent.isObject() && parent.has(name)) {
+			return ((ObjectNode) parent).remove(name);
+		} else if (parent.isArray()) {
+			ArrayNode array = (ArrayNode) parent;
+			return array.remove(getIndex(array, name, array.size() - 1));
+		}
+		throw invalidPatch();
+	}
+
+	private static JsonNode get(JsonNode document, JsonPointer path) {
+		JsonNode value = document.at(path);
+		if (value.isMissingNode()) {
+			throw invalidPatch();
+		}
+		return value;
+	}
+
+	private static int getIndex(ArrayNode array, String name, int maxIndex) {
+		if (!name.matches("0|[1-9][0-9]{0,8}")) {
+			throw invalidPatch();
+		}
+		int index = Integer.parseInt(name);
+		if (index > maxIndex) {
+			throw invalidPatch();
+		}
+		return index;
+	}
+
+	private static JsonPointer getPointer(JsonNode operation, String member) {
+		JsonNode pointer = operation.get(member);
+		if (pointer == null || !pointer.isTextual()) {
+			throw invalidPatch();
+		}
+		try {
+			return JsonPointer.compile(pointer.asText());
+		} catch (IllegalArgumentException e) {
+			throw invalidPatch();
+		}
+	}
+
+	private static JsonNode getValue(JsonNode operation) {
+		JsonNode value = operation.get("value");
+		if (value == null) {
+			throw invalidPatch();
+		}
+		return value;
+	}
+
+	/**
+	 * Merges the patch into the target: members with null values are removed, objects are merged recursively and any
+	 * other value replaces the target value.
+	 *
+	 * @return the merged document
+	 */
+	public static JsonNode merge(JsonNode target, JsonNode patch) {
+		if (!patch.isObject()) {
+			return patch;
+		}
+		ObjectNode result = target != null && target.isObject() ? (ObjectNode) target : ((ObjectNode) patch).objectNode();
+		Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			if (field.getValue().isNull()) {
+				result.remove(field.getKey());
+			} else {
+				result.set(field.getKey(), merge(result.get(field.getKey()), field.getValue()));
+			}
+		}
+		return result;
+	}
+
+	private static UnprocessableEntityException invalidPatch() {
+		return new UnprocessableEntityException(MessageCode.INVALID_PATCH);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+/**
+ * Includes the subtrees addressed by any of the given JSON Pointers, together with the objects and arrays enclosing
+ * them.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class JsonPointerFilter extends TokenFilter {
+
+	private final List<JsonPointer> pointers;
+
+	private JsonPointerFilter(List<JsonPointer> pointers) {
+		this.pointers = pointers;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if an expression is not a valid JSON Pointer
+	 */
+	public static TokenFilter of(List<String> expressions) {
+		List<JsonPointer> pointers = new ArrayList<>();
+		for (String expression : expressions) {
+			pointers.add(JsonPointer.compile(expression));
+		}
+		return next(pointers);
+	}
+
+	private static TokenFilter next(List<JsonPointer> pointers) {
+		if (pointers.isEmpty()) {
+			return null;
+		}
+		for (JsonPointer pointer : pointers) {
+			if (pointer.matches()) {
+				return TokenFilter.INCLUDE_ALL;
+			}
+		}
+		return new JsonPointerFilter(pointers);
+	}
+
+	@Override
+	public TokenFilter includeProperty(String name) {
+		List<JsonPointer> remaining = new ArrayList<>();
+		for (JsonPointer pointer : pointers) {
+			JsonPointer tail = pointer.matchProperty(name);
+			if (tail != null) {
+				remaining.add(tail);
+			}
+		}
+		return next(remaining);
+	}
+
+	@Override
+	public TokenFilter includeElement(int index) {
+		List<JsonPointer> remaining = new ArrayList<>();
+		for (JsonPointer pointer : pointers) {
+			JsonPointer tail = pointer.matchElement(index);
+			if (tail != null) {
+				remaining.add(tail);
+			}
+		}
+		return next(remaining);
+	}
+
+	@Override
+	protected boolean _includeScalar() {
+		// the pointers address a value below this one
+		return false;
+	}
+}
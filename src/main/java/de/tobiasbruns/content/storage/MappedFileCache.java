@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps recently read files memory-mapped, so reading them again needs neither opening nor reading the file. The
+ * cache is bounded by the mapped bytes and drops the least recently used files first.
+ *
+ * Mappings are reference counted: a dropped file is unmapped as soon as the last stream reading it is closed, which
+ * also releases the file for replacing on platforms that lock mapped files. Files changed by the storage must be
+ * invalidated, changes from outside are not noticed.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class MappedFileCache {
+
+	private static final Logger LOG = LogManager.getLogger(MappedFileCache.class);
+	private static final AtomicBoolean unmapFailureLogged = new AtomicBoolean();
+
+	private final long maxFileSize;
+	private final long capacity;
+
+	private final LinkedHashMap<String, MappedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+	private long mappedBytes;
+	// counts invalidations, so a mapping created concurrently to an invalidation is not cached
+	private long generation;
+
+	public MappedFileCache(long maxFileSize, long capacity) {
+		this.maxFileSize = Math.min(Math.min(maxFileSize, capacity), Integer.MAX_VALUE);
+		this.capacity = capacity;
+	}
+
+	public synchronized long getMappedBytes() {
+		return mappedBytes;
+	}
+
+	/**
+	 * @return a stream on the mapped file or null if the file is too large to be mapped
+	 */
+	public InputStream open(String path, File file) throws IOException {
+		String key = ContentPaths.normalize(path);
+		long startGeneration;
+		synchronized (this) {
+			MappedFile cached = files.get(key);
+			if (cached != null && cached.retain()) {
+				return new MappedContentInputStream(cached);
+			}
+			startGeneration = generation;
+		}
+		MappedFile mapped = map(file);
+		if (mapped == null) {
+			return null;
+		}
+		InputStream in = new MappedContentInputStream(mapped);
+		synchronized (this) {
+			if (generation == startGeneration && !files.containsKey(key)) {
+				mapped.retain();
+				files.put(key, mapped);
+				mappedBytes += mapped.size;
+				evictExceedingFiles();
+			}
+		}
+		return in;
+	}
+
+	private MappedFile map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size == 0 || size > maxFileSize) {
+				return null;
+			}
+			return new MappedFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	private void evictExceedingFiles() {
+		Iterator<MappedFile> it = files.values().iterator();
+		while (mappedBytes > capacity && it.hasNext()) {
+			MappedFile eldest = it.next();
+			it.remove();
+			mappedBytes -= eldest.size;
+			eldest.release();
+		}
+	}
+
+	/**
+	 * Drops the mapping of the file at the path.
+	 */
+	public void invalidate(String path) {
+		MappedFile removed;
+		synchronized (this) {
+			generation++;
+			removed = files.remove(ContentPaths.normalize(path));
+			if (removed != null) {
+				mappedBytes -= removed.size;
+			}
+		}
+		if (removed != null) {
+			removed.release();
+		}
+	}
+
+	/**
+	 * Drops the mappings of the file at the path and of all files below it.
+	 */
+	public synchronized void invalidateTree(String path) {
+		generation++;
+		String key = ContentPaths.normalize(path);
+		Iterator<Map.Entry<String, MappedFile>> it = files.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, MappedFile> entry = it.next();
+			if (entry.getKey().equals(key) || entry.getKey().startsWith(key + "/")) {
+				it.remove();
+				mappedBytes -= entry.getValue().size;
+				entry.getValue().release();
+			}
+		}
+	}
+
+	/**
+	 * Unmaps the buffer right away instead of waiting for the garbage collector. Only possible on runtimes that expose
+	 * the cleaner of direct buffers, elsewhere the garbage collector has to do it. That is logged once.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			if (unmapFailureLogged.compareAndSet(false, true)) {
+				LOG.warn("Mapped files cannot be unmapped on this runtime, their mappings are released by the garbage "
+						+ "collector", e);
+			}
+		}
+	}
+
+	/**
+	 * A mapped file, referenced by the cache and by every open stream.
+	 */
+	private static class MappedFile {
+		private final MappedByteBuffer buffer;
+		private final long size;
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		MappedFile(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+			this.size = buffer.capacity();
+		}
+
+		boolean retain() {
+			int count;
+			do {
+				count = references.get();
+				if (count == 0) {
+					return false;
+				}
+			} while (!references.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		void release() {
+			if (references.decrementAndGet() == 0) {
+				unmap(buffer);
+			}
+		}
+	}
+
+	private static class MappedContentInputStream extends InputStream implements RandomAccessContent {
+		private final MappedFile file;
+		private final ByteBuffer data;
+		private boolean closed;
+
+		MappedContentInputStream(MappedFile file) {
+			this.file = file;
+			this.data = file.buffer.duplicate();
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkOpen();
+			return data.hasRemaining() ? data.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			checkOpen();
+			if (len == 0) {
+				return 0;
+			}
+			if (!data.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, data.remaining());
+			data.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			checkOpen();
+			int count = (int) Math.max(0, Math.min(n, data.remaining()));
+			data.position(data.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			checkOpen();
+			return data.remaining();
+		}
+
+		@Override
+		public long size() {
+			return file.size;
+		}
+
+		@Override
+		public void transferTo(long position, long count, OutputStream out) throws IOException {
+			checkOpen();
+			ByteBuffer region = file.buffer.duplicate();
+			region.limit((int) (position + count)).position((int) position);
+			WritableByteChannel target = Channels.newChannel(out);
+			while (region.hasRemaining()) {
+				target.write(region);
+			}
+		}
+
+		private void checkOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				file.release();
+			}
+		}
+	}
+}
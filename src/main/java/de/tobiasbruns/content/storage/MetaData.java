@@ -1,48 +1,122 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Optional;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-public class MetaData {
-
-   private Optional<String> contentType = Optional.empty();
-   private Collection<MetaDatum> data = Collections.emptyList();
-
-   public Optional<String> getContentType() {
-      return contentType;
-   }
-
-   public void setContentType(String contentType) {
-      this.contentType = Optional.ofNullable(contentType);
-   }
-
-   public Collection<MetaDatum> getData() {
-      return Collections.unmodifiableCollection(data);
-   }
-
-   public void setData(Collection<MetaDatum> data) {
-      this.data = data;
-   }
-
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+public class MetaData {
+
+   private Optional<String> contentType = Optional.empty();
+   private Optional<String> contentEncoding = Optional.empty();
+   private Optional<Long> decodedSize = Optional.empty();
+   private Optional<String> blob = Optional.empty();
+   private long version;
+   private long created;
+   private long modified;
+   private Collection<MetaDatum> data = Collections.emptyList();
+
+   public Optional<String> getContentType() {
+      return contentType;
+   }
+
+   public void setContentType(String contentType) {
+      this.contentType = Optional.ofNullable(contentType);
+   }
+
+   /**
+    * The encoding the content is stored with, like the HTTP content coding.
+    */
+   public Optional<String> getContentEncoding() {
+      return contentEncoding;
+   }
+
+   public void setContentEncoding(String contentEncoding) {
+      this.contentEncoding = Optional.ofNullable(contentEncoding);
+   }
+
+   /**
+    * The size of the content before it was encoded, empty if it is stored as it is.
+    */
+   public Optional<Long> getDecodedSize() {
+      return decodedSize;
+   }
+
+   public void setDecodedSize(Long decodedSize) {
+      this.decodedSize = Optional.ofNullable(decodedSize);
+   }
+
+   /**
+    * The hash of the blob the content was stored as, empty if it is not stored as blob.
+    */
+   public Optional<String> getBlob() {
+      return blob;
+   }
+
+   public void setBlob(String blob) {
+      this.blob = Optional.ofNullable(blob);
+   }
+
+   /**
+    * Counts the writes of the content and its own MetaData, 0 if it was never written with a version.
+    */
+   public long getVersion() {
+      return version;
+   }
+
+   public void setVersion(long version) {
+      this.version = version;
+   }
+
+   /**
+    * Identifies the creation of the content, so content created again at the path of deleted content does not take
+    * over its versions. 0 for content created without a creation stamp.
+    */
+   public long getCreated() {
+      return created;
+   }
+
+   public void setCreated(long created) {
+      this.created = created;
+   }
+
+   /**
+    * Stamps the last write of the content at its path in microseconds, 0 if it was never written with a stamp. Paths
+    * sharing a blob share its file modification time, so this is the modification time of the content.
+    */
+   public long getModified() {
+      return modified;
+   }
+
+   public void setModified(long modified) {
+      this.modified = modified;
+   }
+
+   public Collection<MetaDatum> getData() {
+      return Collections.unmodifiableCollection(data);
+   }
+
+   public void setData(Collection<MetaDatum> data) {
+      this.data = data;
+   }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import de.tobiasbruns.content.storage.FileSystemService.SyncPolicy;
+
+/**
+ * Keeps the MetaData of all content in a single append-only log file under the storage root instead of one sidecar
+ * file per item. The log holds a record per write, a rename or delete appends tombstones for the old paths. The
+ * position of the current record of every path is kept in memory, so a lookup is one positional read. The log is
+ * replayed on startup, a torn record at its end is cut off, and it is compacted once most of it is outdated.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Service
+@ConditionalOnProperty(name = "storage.metadata.store", havingValue = "index")
+public class MetaDataIndex {
+
+	static final String FILE_NAME = ".metadata.index";
+
+	// crc, key length and value length
+	private static final int HEADER_SIZE = 12;
+	private static final int TOMBSTONE = -1;
+
+	@Value("${storage.root}")
+	private String storageRootDirectory;
+	@Value("${storage.fsync:NONE}")
+	private SyncPolicy syncPolicy = SyncPolicy.NONE;
+	@Value("${storage.metadata.index.compaction_threshold:1048576}")
+	private long compactionThreshold;
+
+	private final NavigableMap<String, Record> records = new ConcurrentSkipListMap<>();
+	// reads share the channel, writes and the compaction, which replaces it, are exclusive
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private File file;
+	private FileChannel channel;
+	private long liveBytes;
+	private boolean created;
+
+	public MetaDataIndex() {
+	}
+
+	MetaDataIndex(File file, SyncPolicy syncPolicy, long compactionThreshold) {
+		this.syncPolicy = syncPolicy;
+		this.compactionThreshold = compactionThreshold;
+		open(file);
+	}
+
+	@PostConstruct
+	public void initBean() {
+		File root = new File(storageRootDirectory);
+		root.mkdirs();
+		open(new File(root, FILE_NAME));
+	}
+
+	private void open(File file) {
+		this.file = file;
+		created = !file.exists();
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			replay();
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening metadata index " + file, e);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return true if the index file did not exist before it was opened
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+
+	/**
+	 * The index file lies in the content tree, but is no content.
+	 */
+	public static boolean isIndexPath(String path) {
+		return ContentPaths.normalize(path).equals("/" + FILE_NAME);
+	}
+
+	/**
+	 * @return the stored MetaData of the path, null if there are none
+	 */
+	public byte[] get(String path) {
+		lock.readLock().lock();
+		try {
+			Record record = records.get(ContentPaths.normalize(path));
+			return record == null ? null : readValue(record);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void put(String path, byte[] value) {
+		lock.writeLock().lock();
+		try {
+			append(ContentPaths.normalize(path), value);
+			sync();
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stores the MetaData of several paths with a single sync.
+	 */
+	public void putAll(Map<String, byte[]> values) {
+		lock.writeLock().lock();
+		try {
+			values.forEach((path, value) -> append(ContentPaths.normalize(path), value));
+			sync();
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves the MetaData of the path and, if it is a folder, of all of its children to the new path.
+	 */
+	public void rename(String oldPath, String newPath) {
+		String oldKey = ContentPaths.normalize(oldPath);
+		String newKey = ContentPaths.normalize(newPath);
+		lock.writeLock().lock();
+		try {
+			for (Map.Entry<String, Record> entry : new ArrayList<>(getTree(oldKey).entrySet())) {
+				byte[] value = readValue(entry.getValue());
+				append(newKey + entry.getKey().substring(oldKey.length()), value);
+				append(entry.getKey(), null);
+			}
+			sync();
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the MetaData of the path and, if it is a folder, of all of its children.
+	 */
+	public void delete(String path) {
+		String key = ContentPaths.normalize(path);
+		lock.writeLock().lock();
+		try {
+			for (String treeKey : new ArrayList<>(getTree(key).keySet())) {
+				append(treeKey, null);
+			}
+			sync();
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	long getFileSize() throws IOException {
+		return channel.size();
+	}
+
+	private Map<String, Record> getTree(String key) {
+		Map<String, Record> tree = new LinkedHashMap<>();
+		Record record = records.get(key);
+		if (record != null) {
+			tree.put(key, record);
+		}
+		String prefix = key.equals("/") ? "/" : key + "/";
+		// '0' follows '/', so the range holds exactly the keys starting with the prefix
+		tree.putAll(records.subMap(prefix, true, prefix.substring(0, prefix.length() - 1) + "0", false));
+		return tree;
+	}
+
+	private byte[] readValue(Record record) {
+		ByteBuffer buffer = ByteBuffer.allocate(record.valueLength);
+		try {
+			readFully(buffer, record.valuePosition);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading metadata index " + file, e);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Appends a record for the key, a tombstone if the value is null, and points the key to it.
+	 */
+	private void append(String key, byte[] value) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int valueLength = value == null ? TOMBSTONE : value.length;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + Math.max(0, valueLength));
+		buffer.position(4);
+		buffer.putInt(keyBytes.length).putInt(valueLength).put(keyBytes);
+		if (value != null) {
+			buffer.put(value);
+		}
+		buffer.putInt(0, checksum(buffer.array()));
+		buffer.flip();
+		try {
+			long position = channel.size();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, position + buffer.position());
+			}
+			update(key, position, keyBytes.length, valueLength);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing metadata index " + file, e);
+		}
+	}
+
+	private void update(String key, long position, int keyLength, int valueLength) {
+		Record old = valueLength == TOMBSTONE ? records.remove(key)
+				: records.put(key, new Record(position + HEADER_SIZE + keyLength, valueLength));
+		if (old != null) {
+			liveBytes -= old.getRecordSize(key);
+		}
+		if (valueLength != TOMBSTONE) {
+			liveBytes += HEADER_SIZE + keyLength + valueLength;
+		}
+	}
+
+	private void sync() {
+		if (syncPolicy != SyncPolicy.NONE) {
+			try {
+				channel.force(false);
+			} catch (IOException e) {
+				throw new RuntimeException("Error syncing metadata index " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Reads all records to rebuild the positions. Everything after the first incomplete or corrupt record is the
+	 * remainder of an interrupted write and is removed.
+	 */
+	private void replay() throws IOException {
+		records.clear();
+		liveBytes = 0;
+		long position = 0;
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (position + HEADER_SIZE <= size) {
+			header.clear();
+			readFully(header, position);
+			int crc = header.getInt(0);
+			int keyLength = header.getInt(4);
+			int valueLength = header.getInt(8);
+			if (keyLength < 0 || valueLength < TOMBSTONE
+					|| position + HEADER_SIZE + keyLength + Math.max(0, valueLength) > size) {
+				break;
+			}
+			ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyLength + Math.max(0, valueLength));
+			readFully(record, position);
+			if (checksum(record.array()) != crc) {
+				break;
+			}
+			String key = new String(record.array(), HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+			update(key, position, keyLength, valueLength);
+			position += record.capacity();
+		}
+		if (position < size) {
+			channel.truncate(position);
+		}
+	}
+
+	/**
+	 * Rewrites the live records into a new file, once the outdated records make up most of the log.
+	 */
+	private void compactIfNeeded() {
+		try {
+			long size = channel.size();
+			if (size < compactionThreshold || liveBytes * 2 > size) {
+				return;
+			}
+			File compacted = new File(file.getPath() + ".compact");
+			try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				for (Map.Entry<String, Record> entry : records.entrySet()) {
+					long position = entry.getValue().valuePosition - HEADER_SIZE
+							- entry.getKey().getBytes(StandardCharsets.UTF_8).length;
+					long count = entry.getValue().getRecordSize(entry.getKey());
+					long transferred = 0;
+					while (transferred < count) {
+						transferred += channel.transferTo(position + transferred, count - transferred, target);
+					}
+				}
+				target.force(true);
+			}
+			channel.close();
+			try {
+				Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				// if the move failed, the index goes on with the original file
+				open(file);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error compacting metadata index " + file, e);
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of metadata index " + file);
+			}
+		}
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 4, record.length - 4);
+		return (int) crc.getValue();
+	}
+
+	private static class Record {
+		private final long valuePosition;
+		private final int valueLength;
+
+		Record(long valuePosition, int valueLength) {
+			this.valuePosition = valuePosition;
+			this.valueLength = valueLength;
+		}
+
+		long getRecordSize(String key) {
+			return HEADER_SIZE + key.getBytes(StandardCharsets.UTF_8).length + valueLength;
+		}
+	}
+}
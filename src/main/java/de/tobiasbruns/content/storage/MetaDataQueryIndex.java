@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+
+/**
+ * Inverted index from the keys and values of the MetaData to the paths of the content carrying them. Only the own
+ * MetaData of each item are indexed, the inherited ones are resolved by the position in the tree when querying, so
+ * changing the MetaData of a folder is a single update. The index is built by walking the tree when it is queried the
+ * first time, afterwards it is maintained with every write and rename of MetaData.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Component
+public class MetaDataQueryIndex {
+
+	@Autowired
+	private StorageBackend backend;
+	@Autowired
+	private MetaDataService metaDataService;
+
+	// own MetaData per path, every known content path is present
+	private final NavigableMap<String, Map<String, String>> ownData = new TreeMap<>();
+	// paths carrying a key with the value they carry it with
+	private final Map<String, NavigableMap<String, String>> valuesByKey = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile boolean built;
+
+	/**
+	 * Replaces the indexed MetaData of the path. Nothing is tracked before the index is built, the build reads the
+	 * current MetaData anyway.
+	 */
+	public void update(String path, Collection<MetaDatum> data) {
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				put(ContentPaths.normalize(path), data);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves the indexed MetaData of the path and, if it is a folder, of all of its children to the new path.
+	 */
+	public void rename(String oldPath, String newPath) {
+		String oldKey = ContentPaths.normalize(oldPath);
+		String newKey = ContentPaths.normalize(newPath);
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				Map<String, Map<String, String>> tree = new TreeMap<>(getTree(oldKey));
+				tree.keySet().forEach(this::remove);
+				tree.forEach((path, data) -> put(newKey + path.substring(oldKey.length()), data));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the indexed MetaData of the path and, if it is a folder, of all of its children.
+	 */
+	public void remove(String path, boolean tree) {
+		String key = ContentPaths.normalize(path);
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				(tree ? new ArrayList<>(getTree(key).keySet()) : Collections.singletonList(key))
+						.forEach(this::remove);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the content below the folder whose own or inherited MetaData hold the key with the value.
+	 *
+	 * @return the paths in their natural order starting after the given one, at most count
+	 */
+	public List<String> find(String folder, String key, String value, String after, int count) {
+		ensureBuilt();
+		String folderKey = ContentPaths.normalize(folder);
+		lock.readLock().lock();
+		try {
+			NavigableSet<String> matches = findMatches(folderKey, key, value);
+			List<String> result = new ArrayList<>(count);
+			for (String path : after == null ? matches : matches.tailSet(after, false)) {
+				if (result.size() == count) {
+					break;
+				}
+				result.add(path);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The values inherited from the outermost folder win over those of inner folders, but the own value of an item
+	 * wins over all inherited ones, just like when the MetaData are loaded.
+	 */
+	private NavigableSet<String> findMatches(String folder, String key, String value) {
+		NavigableSet<String> matches = new TreeSet<>();
+		NavigableMap<String, String> carriers = getDescendants(
+				valuesByKey.getOrDefault(key, Collections.emptyNavigableMap()), folder);
+		carriers.forEach((path, carried) -> {
+			if (carried.equals(value)) {
+				matches.add(path);
+			}
+		});
+
+		String inherited = getInheritedValue(folder, key);
+		if (inherited != null) {
+			if (inherited.equals(value)) {
+				addDescendantsWithoutKey(folder, key, matches);
+			}
+			return matches;
+		}
+		carriers.forEach((path, carried) -> {
+			if (carried.equals(value) && !isInheritedWithin(path, folder, carriers)) {
+				addDescendantsWithoutKey(path, key, matches);
+			}
+		});
+		return matches;
+	}
+
+	/**
+	 * @return the value of the key the folder carries or inherits, null if neither it nor its ancestors carry it
+	 */
+	private String getInheritedValue(String folder, String key) {
+		List<String> folders = new ArrayList<>();
+		folders.add("/");
+		StringBuilder path = new StringBuilder();
+		for (String name : ContentPaths.split(folder)) {
+			folders.add(path.append('/').append(name).toString());
+		}
+		for (String ancestor : folders) {
+			Map<String, String> data = ownData.get(ancestor);
+			if (data != null && data.containsKey(key)) {
+				return data.get(key);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a folder between the queried folder and the path carries the key, whose value the path's children
+	 * inherit instead.
+	 */
+	private boolean isInheritedWithin(String path, String folder, Map<String, String> carriers) {
+		String parent = ContentPaths.getParent(path);
+		while (!parent.equals(folder) && !parent.equals("/")) {
+			if (carriers.containsKey(parent)) {
+				return true;
+			}
+			parent = ContentPaths.getParent(parent);
+		}
+		return false;
+	}
+
+	private void addDescendantsWithoutKey(String folder, String key, Collection<String> matches) {
+		getDescendants(ownData, folder).forEach((path, data) -> {
+			if (!data.containsKey(key)) {
+				matches.add(path);
+			}
+		});
+	}
+
+	private Map<String, Map<String, String>> getTree(String path) {
+		Map<String, Map<String, String>> tree = new TreeMap<>(getDescendants(ownData, path));
+		Map<String, String> data = ownData.get(path);
+		if (data != null) {
+			tree.put(path, data);
+		}
+		return tree;
+	}
+
+	/**
+	 * '0' follows '/', so the range holds exactly the paths below the folder.
+	 */
+	private static <T> NavigableMap<String, T> getDescendants(NavigableMap<String, T> map, String folder) {
+		String prefix = folder.equals("/") ? "/" : folder + "/";
+		return map.subMap(prefix, !folder.equals("/"), prefix.substring(0, prefix.length() - 1) + "0", false);
+	}
+
+	private void put(String path, Collection<MetaDatum> data) {
+		remove(path);
+		Map<String, String> values = new HashMap<>();
+		for (MetaDatum datum : data) {
+			if (datum.getKey() != null && datum.getValue() != null) {
+				values.put(datum.getKey(), datum.getValue());
+				valuesByKey.computeIfAbsent(datum.getKey(), key -> new TreeMap<>()).put(path, datum.getValue());
+			}
+		}
+		ownData.put(path, values);
+	}
+
+	private void put(String path, Map<String, String> values) {
+		remove(path);
+		ownData.put(path, values);
+		values.forEach((key, value) -> valuesByKey.computeIfAbsent(key, k -> new TreeMap<>()).put(path, value));
+	}
+
+	private void remove(String path) {
+		Map<String, String> values = ownData.remove(path);
+		if (values != null) {
+			values.keySet().forEach(key -> {
+				NavigableMap<String, String> paths = valuesByKey.get(key);
+				paths.remove(path);
+				if (paths.isEmpty()) {
+					valuesByKey.remove(key);
+				}
+			});
+		}
+	}
+
+	private void ensureBuilt() {
+		if (built) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				index("/", true);
+				built = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void index(String path, boolean directory) {
+		put(ContentPaths.normalize(path), metaDataService.readMetaData(path, directory).getData());
+		if (!directory) {
+			return;
+		}
+		String after = null;
+		List<String> children;
+		do {
+			children = backend.listDirectory(path, after, 1000,
+					name -> !MetaDataService.isMetaDataFile(name) && !BlobStore.isBlobPath(path + "/" + name));
+			for (String name : children) {
+				String child = ContentPaths.resolve(path, name);
+				try {
+					index(child, backend.getAttributes(child).isDirectory());
+				} catch (ResourceNotFoundException e) {
+					// deleted while indexing
+				}
+				after = name;
+			}
+		} while (!children.isEmpty());
+	}
+}
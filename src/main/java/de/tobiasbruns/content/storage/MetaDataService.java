@@ -1,133 +1,437 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
-
-/**
- * created: 25.10.2016
- *
- * @author Tobias Bruns
- */
-@Service
-public class MetaDataService {
-
-   @Autowired
-   private FileSystemService fsService;
-   @Autowired
-   private ObjectMapper objectMapper;
-
-   private static final String METADATA_SUFFIX = ".metadata.json";
-
-   public MetaData loadMetaData(String path) {
-      Set<MetaDatum> inheritedData = loadInheritedData(path);
-      MetaData metaData = readMetaData(path);
-      Set<MetaDatum> fileData = new HashSet<>(metaData.getData());
-      fileData.addAll(inheritedData);
-      metaData.setData(fileData);
-
-      return metaData;
-   }
-
-   Set<MetaDatum> loadInheritedData(String basePath) {
-      String[] pathElements = basePath.split("/");
-      Set<MetaDatum> data = new HashSet<>();
-      StringBuilder sb = new StringBuilder("/");
-
-      for (int i = 0; i < pathElements.length - 1; i++) {
-         sb.append(pathElements[i]);
-         data.addAll(loadFolderMetaData(sb.toString()));
-         if (i > 0) {
-            sb.append("/");
-         }
-      }
-      return data;
-   }
-
-   Set<MetaDatum> loadFolderMetaData(String path) {
-      Collection<MetaDatum> metaData = readMetaData(path).getData();
-      metaData.forEach(datum -> datum.setInherited(true));
-      return new HashSet<>(metaData);
-   }
-
-   MetaData readMetaData(String path) {
-      try {
-         return parseFile(fsService.getFile(buildMetaDataFileName(path)));
-      } catch (ResourceNotFoundException e) {
-         MetaData data = new MetaData();
-         writeMetaData(path, data);
-         return data;
-      }
-   }
-
-   MetaData parseFile(File metaDataFile) {
-      Objects.requireNonNull(metaDataFile, "MetaDataFile must not be null");
-      try {
-         return objectMapper.readValue(metaDataFile, MetaData.class);
-      } catch (IOException e) {
-         throw new RuntimeException("Error reading Meta-Data File: " + metaDataFile, e);
-      }
-   }
-
-   public void writeMetaData(String path, MetaData metaData) {
-      Objects.requireNonNull(metaData, "MetaData must not be null");
-
-      File metaDataFile = fsService.getOrCreateFile(buildMetaDataFileName(path));
-      writeToFile(metaDataFile, metaData);
-   }
-
-   public void renameMetaDataFile(String oldPath, String newName) {
-      String oldMetaDataPath = buildMetaDataFileNameForFile(oldPath);
-      String newMetaDataName = buildMetaDataFileNameForFile(newName);
-      fsService.renameFile(oldMetaDataPath, newMetaDataName);
-   }
-
-   void writeToFile(File metaDataFile, MetaData metaData) {
-      try {
-         objectMapper.writeValue(metaDataFile, metaData);
-      } catch (IOException e) {
-         throw new RuntimeException(e);
-      }
-   }
-
-   String buildMetaDataFileName(String origFilePath) {
-      if (isDirectory(origFilePath)) {
-         return origFilePath + "/" + METADATA_SUFFIX;
-      } else {
-         return buildMetaDataFileNameForFile(origFilePath);
-      }
-   }
-
-   String buildMetaDataFileNameForFile(String origFilePath) {
-      return origFilePath + METADATA_SUFFIX;
-   }
-
-   private boolean isDirectory(String path) {
-      return fsService.getFile(path).isDirectory();
-   }
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+
+/**
+ * created: 25.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class MetaDataService {
+
+   @Autowired
+   private StorageBackend backend;
+   @Autowired
+   private ObjectMapper objectMapper;
+   @Autowired(required = false)
+   private MetaDataIndex index;
+   @Autowired
+   private MetaDataQueryIndex queryIndex;
+   @Value("${storage.metadata.inherited_cache.size:10000}")
+   private int inheritedDataCacheSize;
+   @Value("${storage.metadata.missing_cache.size:10000}")
+   private int missingMetaDataCacheSize;
+   @Value("${storage.metadata.missing_cache.ttl:5000}")
+   private long missingMetaDataTtl;
+
+   private static final String METADATA_SUFFIX = ".metadata.json";
+
+   /**
+    * effective inherited MetaData per folder, i.e. the data of the folder itself merged with the data of all its
+    * ancestors. The least recently used folders are dropped first, the cached data are never handed out but copied.
+    */
+   private final Map<String, Set<MetaDatum>> inheritedDataCache = new LinkedHashMap<>(16, 0.75f, true);
+   /**
+    * MetaData files known to be missing with the time they were found missing, they are read as empty MetaData until
+    * they get written or the entry expires, so MetaData written by another node sharing the storage gets seen. The
+    * least recently used entries are dropped first.
+    */
+   private final Map<String, Long> missingMetaDataFiles = new LinkedHashMap<>(16, 0.75f, true);
+   private final AtomicLong cacheGeneration = new AtomicLong();
+   private final AtomicLong lastStamp = new AtomicLong();
+
+   /**
+    * Moves the MetaData files of content written before the MetaData index was used into the index, when the index is
+    * created.
+    */
+   @PostConstruct
+   public void initBean() {
+      if (index != null && index.isCreated()) {
+         importMetaDataFiles("/");
+      }
+   }
+
+   private void importMetaDataFiles(String folder) {
+      Map<String, byte[]> values = new LinkedHashMap<>();
+      List<String> metaDataFiles = new ArrayList<>();
+      List<String> subFolders = new ArrayList<>();
+      String after = null;
+      List<String> children;
+      do {
+         children = backend.listDirectory(folder, after, 1000,
+               name -> !BlobStore.isBlobPath(folder + "/" + name) && !name.equals(MetaDataIndex.FILE_NAME));
+         for (String name : children) {
+            String child = ContentPaths.resolve(folder, name);
+            if (name.endsWith(METADATA_SUFFIX)) {
+               String path = name.equals(METADATA_SUFFIX) ? folder
+                     : child.substring(0, child.length() - METADATA_SUFFIX.length());
+               values.put(path, readMetaDataFile(child));
+               metaDataFiles.add(child);
+            } else if (backend.getAttributes(child).isDirectory()) {
+               subFolders.add(child);
+            }
+            after = name;
+         }
+      } while (!children.isEmpty());
+
+      if (!values.isEmpty()) {
+         index.putAll(values);
+         metaDataFiles.forEach(backend::delete);
+      }
+      subFolders.forEach(this::importMetaDataFiles);
+   }
+
+   private byte[] readMetaDataFile(String metaDataFileName) {
+      try (InputStream in = backend.openStream(metaDataFileName)) {
+         return IOUtils.toByteArray(in);
+      } catch (IOException e) {
+         throw new RuntimeException("Error reading Meta-Data", e);
+      }
+   }
+
+   public MetaData loadMetaData(String path) {
+      return loadMetaData(path, isDirectory(path));
+   }
+
+   public MetaData loadMetaData(String path, boolean directory) {
+      Set<MetaDatum> inheritedData = loadInheritedData(path);
+      MetaData metaData = readMetaData(path, directory);
+      Set<MetaDatum> fileData = new HashSet<>(metaData.getData());
+      fileData.addAll(inheritedData);
+      metaData.setData(fileData);
+
+      return metaData;
+   }
+
+   Set<MetaDatum> loadInheritedData(String basePath) {
+      List<String> folders = buildAncestorFolders(basePath);
+      if (folders.isEmpty()) {
+         return new HashSet<>();
+      }
+      return copy(resolveFolderData(folders));
+   }
+
+   private static Set<MetaDatum> copy(Collection<MetaDatum> data) {
+      return data.stream().map(MetaDatum::copy).collect(Collectors.toCollection(HashSet::new));
+   }
+
+   private List<String> buildAncestorFolders(String basePath) {
+      String[] pathElements = basePath.split("/");
+      List<String> folders = new ArrayList<>();
+      StringBuilder sb = new StringBuilder("/");
+
+      for (int i = 0; i < pathElements.length - 1; i++) {
+         sb.append(pathElements[i]);
+         folders.add(sb.toString());
+         if (i > 0) {
+            sb.append("/");
+         }
+      }
+      return folders;
+   }
+
+   private Set<MetaDatum> resolveFolderData(List<String> folders) {
+      int cachedIndex = folders.size() - 1;
+      Set<MetaDatum> data = null;
+      while (cachedIndex >= 0 && (data = getCachedFolderData(folders.get(cachedIndex))) == null) {
+         cachedIndex--;
+      }
+
+      for (int i = cachedIndex + 1; i < folders.size(); i++) {
+         long generation = cacheGeneration.get();
+         Set<MetaDatum> folderData = data == null ? new HashSet<>() : new HashSet<>(data);
+         folderData.addAll(copy(loadFolderMetaData(folders.get(i))));
+         data = Collections.unmodifiableSet(folderData);
+         cacheFolderData(folders.get(i), data, generation);
+      }
+      return data;
+   }
+
+   private Set<MetaDatum> getCachedFolderData(String folder) {
+      synchronized (inheritedDataCache) {
+         return inheritedDataCache.get(folder);
+      }
+   }
+
+   private void cacheFolderData(String folder, Set<MetaDatum> data, long generation) {
+      synchronized (inheritedDataCache) {
+         if (cacheGeneration.get() != generation) {
+            // an eviction happened while the data was loaded, so it may be outdated
+            return;
+         }
+         inheritedDataCache.put(folder, data);
+         Iterator<Set<MetaDatum>> it = inheritedDataCache.values().iterator();
+         while (inheritedDataCache.size() > inheritedDataCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+         }
+      }
+   }
+
+   /**
+    * Removes all cached MetaData of the given path and, if it is a folder, of all of its children.
+    */
+   public void evictCachedData(String path) {
+      cacheGeneration.incrementAndGet();
+      String folder = normalizeFolderPath(path);
+      String prefix = folder.endsWith("/") ? folder : folder + "/";
+      synchronized (inheritedDataCache) {
+         inheritedDataCache.keySet().removeIf(key -> key.equals(folder) || key.startsWith(prefix));
+      }
+      synchronized (missingMetaDataFiles) {
+         missingMetaDataFiles.keySet()
+               .removeIf(key -> key.startsWith(prefix) || key.equals(folder + METADATA_SUFFIX));
+      }
+   }
+
+   private String normalizeFolderPath(String path) {
+      String folder = path.startsWith("/") ? path : "/" + path;
+      while (folder.length() > 1 && folder.endsWith("/")) {
+         folder = folder.substring(0, folder.length() - 1);
+      }
+      return folder;
+   }
+
+   Set<MetaDatum> loadFolderMetaData(String path) {
+      Collection<MetaDatum> metaData = readMetaData(path, true).getData();
+      metaData.forEach(datum -> datum.setInherited(true));
+      return new HashSet<>(metaData);
+   }
+
+   MetaData readMetaData(String path) {
+      return readMetaData(path, isDirectory(path));
+   }
+
+   MetaData readMetaData(String path, boolean directory) {
+      if (index != null) {
+         byte[] data = index.get(path);
+         return data == null ? new MetaData() : parseStream(new ByteArrayInputStream(data));
+      }
+      String metaDataFileName = buildMetaDataFileName(path, directory);
+      if (isKnownMissing(metaDataFileName)) {
+         return new MetaData();
+      }
+
+      long generation = cacheGeneration.get();
+      try {
+         return parseStream(backend.openStream(metaDataFileName));
+      } catch (ResourceNotFoundException e) {
+         markMissing(metaDataFileName, generation);
+         return new MetaData();
+      }
+   }
+
+   private boolean isKnownMissing(String metaDataFileName) {
+      synchronized (missingMetaDataFiles) {
+         Long foundMissing = missingMetaDataFiles.get(metaDataFileName);
+         if (foundMissing == null) {
+            return false;
+         }
+         if (System.currentTimeMillis() - foundMissing <= missingMetaDataTtl) {
+            return true;
+         }
+         missingMetaDataFiles.remove(metaDataFileName);
+         return false;
+      }
+   }
+
+   private void markMissing(String metaDataFileName, long generation) {
+      synchronized (missingMetaDataFiles) {
+         if (cacheGeneration.get() != generation) {
+            // the MetaData may have been written in the meantime
+            return;
+         }
+         missingMetaDataFiles.put(metaDataFileName, System.currentTimeMillis());
+         Iterator<Long> it = missingMetaDataFiles.values().iterator();
+         while (missingMetaDataFiles.size() > missingMetaDataCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+         }
+      }
+   }
+
+   MetaData parseStream(InputStream metaDataStream) {
+      Objects.requireNonNull(metaDataStream, "MetaDataStream must not be null");
+      try (InputStream in = metaDataStream) {
+         return objectMapper.readValue(in, MetaData.class);
+      } catch (IOException e) {
+         throw new RuntimeException("Error reading Meta-Data", e);
+      }
+   }
+
+   public void writeMetaData(String path, MetaData metaData) {
+      Objects.requireNonNull(metaData, "MetaData must not be null");
+
+      if (index != null) {
+         index.put(path, toBytes(metaData));
+      } else {
+         backend.writeFile(buildMetaDataFileName(path), out -> objectMapper.writeValue(out, metaData));
+      }
+      evictCachedData(path);
+      queryIndex.update(path, metaData.getData());
+   }
+
+   /**
+    * Writes the MetaData of several contents at once, the MetaData index stores all of them with a single sync.
+    */
+   public void writeMetaData(Map<String, MetaData> metaData) {
+      if (index != null) {
+         Map<String, byte[]> values = new LinkedHashMap<>();
+         metaData.forEach((path, data) -> values.put(path, toBytes(data)));
+         index.putAll(values);
+      } else {
+         metaData.forEach((path, data) -> backend.writeFile(buildMetaDataFileName(path),
+               out -> objectMapper.writeValue(out, data)));
+      }
+      metaData.forEach((path, data) -> {
+         evictCachedData(path);
+         queryIndex.update(path, data.getData());
+      });
+   }
+
+   private byte[] toBytes(MetaData metaData) {
+      try {
+         return objectMapper.writeValueAsBytes(metaData);
+      } catch (IOException e) {
+         throw new RuntimeException("Error writing Meta-Data", e);
+      }
+   }
+
+   /**
+    * Evicted content files are gone like deleted ones.
+    */
+   @EventListener
+   public void onContentEvicted(ContentEvictedEvent event) {
+      deleteMetaData(event.getPath(), false);
+   }
+
+   /**
+    * Removes the MetaData of deleted content. The MetaData file of a folder is deleted with the folder itself.
+    */
+   public void deleteMetaData(String path, boolean directory) {
+      if (index != null) {
+         index.delete(path);
+      } else if (!directory) {
+         try {
+            backend.delete(buildMetaDataFileNameForFile(path));
+         } catch (ResourceNotFoundException e) {
+            // MetaData files are created lazily, so there is nothing to delete
+         }
+      }
+      evictCachedData(path);
+      queryIndex.remove(path, directory);
+   }
+
+   /**
+    * @return the MetaData stored for the content itself, without the inherited ones, they have version 0 if the
+    *         content was never written with a version
+    */
+   public MetaData loadOwnMetaData(String path, boolean directory) {
+      return readMetaData(path, directory);
+   }
+
+   /**
+    * @return a stamp for the creation or modification of content, the current time in microseconds, but always
+    *         greater than the stamps given out before
+    */
+   public long nextStamp() {
+      long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+      return lastStamp.updateAndGet(last -> Math.max(now, last + 1));
+   }
+
+   /**
+    * Moves the MetaData along with content, which gets renamed. The MetaData files of folders are moved with the
+    * folder itself.
+    */
+   public void renameMetaData(String oldPath, String newName, boolean directory) {
+      String newPath = ContentPaths.resolve(ContentPaths.getParent(oldPath), newName);
+      if (index != null) {
+         index.rename(oldPath, newPath);
+         evictCachedData(oldPath);
+      } else if (!directory) {
+         renameMetaDataFile(oldPath, newName);
+      }
+      queryIndex.rename(oldPath, newPath);
+   }
+
+   public void renameMetaDataFile(String oldPath, String newName) {
+      String oldMetaDataPath = buildMetaDataFileNameForFile(oldPath);
+      String newMetaDataName = buildMetaDataFileNameForFile(newName);
+      try {
+         String newMetaDataPath = backend.renameFile(oldMetaDataPath, newMetaDataName);
+         synchronized (missingMetaDataFiles) {
+            missingMetaDataFiles.remove(newMetaDataPath);
+         }
+      } catch (ResourceNotFoundException e) {
+         // MetaData files are created lazily, so there is nothing to rename
+      }
+      evictCachedData(oldPath);
+   }
+
+   public static boolean isMetaDataFile(String name) {
+      return name.endsWith(METADATA_SUFFIX) || name.equals(MetaDataIndex.FILE_NAME);
+   }
+
+   String buildMetaDataFileName(String origFilePath) {
+      return buildMetaDataFileName(origFilePath, isDirectory(origFilePath));
+   }
+
+   String buildMetaDataFileName(String origFilePath, boolean directory) {
+      if (directory) {
+         return origFilePath + "/" + METADATA_SUFFIX;
+      } else {
+         return buildMetaDataFileNameForFile(origFilePath);
+      }
+   }
+
+   static String buildMetaDataFileNameForFile(String origFilePath) {
+      return origFilePath + METADATA_SUFFIX;
+   }
+
+   private boolean isDirectory(String path) {
+      return backend.getAttributes(path).isDirectory();
+   }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import de.tobiasbruns.content.storage.exception.InsufficientStorageException;
+
+/**
+ * Fixed size pages carved out of direct {@link ByteBuffer} slabs. Slabs are allocated lazily until the capacity is
+ * reached and are never given back; freed pages are reused for later content.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class OffHeapPagePool {
+
+	static final int SLAB_SIZE = 4 * 1024 * 1024;
+
+	private final int pageSize;
+	private final int pagesPerSlab;
+	private final int maxPages;
+	private final ByteBuffer[] slabs;
+
+	private int[] freePages = new int[0];
+	private int freeCount;
+	private int createdPages;
+
+	public OffHeapPagePool(long capacity, int pageSize) {
+		if (pageSize <= 0 || pageSize > SLAB_SIZE) {
+			throw new IllegalArgumentException("Page size must be between 1 and " + SLAB_SIZE);
+		}
+		this.pageSize = pageSize;
+		this.pagesPerSlab = SLAB_SIZE / pageSize;
+		this.maxPages = (int) Math.min(Integer.MAX_VALUE, capacity / pageSize);
+		this.slabs = new ByteBuffer[(maxPages + pagesPerSlab - 1) / pagesPerSlab];
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public long getCapacity() {
+		return (long) maxPages * pageSize;
+	}
+
+	public synchronized long getUsedBytes() {
+		return (long) (createdPages - freeCount) * pageSize;
+	}
+
+	/**
+	 * @return the index of a free page or -1 if the capacity is exhausted
+	 */
+	synchronized int allocate() {
+		if (freeCount > 0) {
+			return freePages[--freeCount];
+		}
+		if (createdPages >= maxPages) {
+			return -1;
+		}
+		int slab = createdPages / pagesPerSlab;
+		if (slabs[slab] == null) {
+			int slabPages = Math.min(pagesPerSlab, maxPages - slab * pagesPerSlab);
+			slabs[slab] = ByteBuffer.allocateDirect(slabPages * pageSize);
+		}
+		return createdPages++;
+	}
+
+	synchronized void free(int[] pages, int count) {
+		if (freePages.length < freeCount + count) {
+			freePages = Arrays.copyOf(freePages, Math.max(freeCount + count, freePages.length * 2));
+		}
+		System.arraycopy(pages, 0, freePages, freeCount, count);
+		freeCount += count;
+	}
+
+	/**
+	 * The slab of a page is created before the page is handed out by {@link #allocate()}, so every thread that got
+	 * hold of a page index sees it.
+	 */
+	private ByteBuffer page(int index) {
+		ByteBuffer page = slabs[index / pagesPerSlab].duplicate();
+		int offset = (index % pagesPerSlab) * pageSize;
+		page.limit(offset + pageSize).position(offset);
+		return page;
+	}
+
+	/**
+	 * Collects the written data in pages taken from the given source, which may free pages elsewhere before it gives
+	 * up by returning -1. The stream then fails with an {@link InsufficientStorageException}.
+	 */
+	public PageOutputStream newOutputStream(IntSupplier pageSource) {
+		return new PageOutputStream(pageSource);
+	}
+
+	/**
+	 * Immutable content held in pages. The pages go back to the pool when the owner and all open streams have
+	 * released it.
+	 */
+	public class PageData {
+		private final int[] pages;
+		private final long size;
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		private PageData(int[] pages, long size) {
+			this.pages = pages;
+			this.size = size;
+		}
+
+		public long size() {
+			return size;
+		}
+
+		/**
+		 * @return the stream or null if the data has been released in the meantime
+		 */
+		public InputStream openStream() {
+			return retain() ? new PageInputStream(this) : null;
+		}
+
+		private boolean retain() {
+			int count;
+			do {
+				count = references.get();
+				if (count == 0) {
+					return false;
+				}
+			} while (!references.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		public void release() {
+			if (references.decrementAndGet() == 0) {
+				free(pages, pages.length);
+			}
+		}
+	}
+
+	public class PageOutputStream extends OutputStream {
+		private final IntSupplier pageSource;
+		private int[] pages = new int[8];
+		private int pageCount;
+		private ByteBuffer current;
+		private long size;
+
+		private PageOutputStream(IntSupplier pageSource) {
+			this.pageSource = pageSource;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			nextPageIfFull();
+			current.put((byte) b);
+			size++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				nextPageIfFull();
+				int chunk = Math.min(len, current.remaining());
+				current.put(b, off, chunk);
+				off += chunk;
+				len -= chunk;
+				size += chunk;
+			}
+		}
+
+		private void nextPageIfFull() {
+			if (current != null && current.hasRemaining()) {
+				return;
+			}
+			int index = pageSource.getAsInt();
+			if (index < 0) {
+				throw new InsufficientStorageException(InsufficientStorageException.MessageCode.CAPACITY_EXCEEDED);
+			}
+			if (pageCount == pages.length) {
+				pages = Arrays.copyOf(pages, pageCount * 2);
+			}
+			pages[pageCount++] = index;
+			current = page(index);
+		}
+
+		/**
+		 * Hands the written pages over to the returned data, the stream must not be used afterwards.
+		 */
+		public PageData toPageData() {
+			PageData data = new PageData(Arrays.copyOf(pages, pageCount), size);
+			pageCount = 0;
+			return data;
+		}
+
+		/**
+		 * Gives back the pages of an aborted write, does nothing after {@link #toPageData()}.
+		 */
+		public void discard() {
+			free(pages, pageCount);
+			pageCount = 0;
+		}
+	}
+
+	private class PageInputStream extends InputStream {
+		private final PageData data;
+		private long position;
+		private boolean closed;
+
+		PageInputStream(PageData data) {
+			this.data = data;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			if (position >= data.size) {
+				return -1;
+			}
+			int read = 0;
+			while (read < len && position < data.size) {
+				ByteBuffer page = page(data.pages[(int) (position / pageSize)]);
+				page.position(page.position() + (int) (position % pageSize));
+				int chunk = (int) Math.min(Math.min(len - read, page.remaining()), data.size - position);
+				page.get(b, off + read, chunk);
+				read += chunk;
+				position += chunk;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, data.size - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(Integer.MAX_VALUE, data.size - position);
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				data.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+/**
+ * The page of a folder listing to read. The cursor is the name of the last child of the previous page.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class Paging {
+
+	public static final Paging FIRST_PAGE = new Paging(null, null);
+
+	private final String cursor;
+	private final Integer limit;
+
+	public Paging(String cursor, Integer limit) {
+		this.cursor = cursor;
+		this.limit = limit;
+	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Striped read/write locks keyed by the normalized path. Reading a path locks it shared, writing it exclusively, and
+ * every ancestor folder is locked shared as intent, so renaming or replacing a folder excludes all operations below
+ * it, while operations on disjoint paths only share the intent locks of their common ancestors. All stripes needed by
+ * an operation are acquired at once in ascending order, so operations can not deadlock each other. The locks must not
+ * be nested, except for {@link #tryLockExclusive(String)}, which never waits.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@Component
+public class PathLocks {
+
+	@Value("${storage.locks.stripes:1024}")
+	private int stripeCount = 1024;
+
+	private ReentrantReadWriteLock[] stripes;
+
+	public PathLocks() {
+	}
+
+	PathLocks(int stripeCount) {
+		this.stripeCount = stripeCount;
+		initBean();
+	}
+
+	@PostConstruct
+	public void initBean() {
+		stripes = new ReentrantReadWriteLock[stripeCount];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	/**
+	 * Locks the path for reading.
+	 */
+	public PathLock lockShared(String path) {
+		Map<Integer, Boolean> modes = new TreeMap<>();
+		addPath(modes, path, false);
+		return acquire(modes);
+	}
+
+	/**
+	 * Locks the paths for writing, e.g. the old and the new path of a rename.
+	 */
+	public PathLock lockExclusive(String... paths) {
+		Map<Integer, Boolean> modes = new TreeMap<>();
+		for (String path : paths) {
+			addPath(modes, path, true);
+		}
+		return acquire(modes);
+	}
+
+	/**
+	 * Locks the path for writing, if that is possible without waiting and the current thread does not lock it
+	 * already, e.g. to evict content from within the write of another path.
+	 *
+	 * @return the held locks, or null if the path is locked
+	 */
+	public PathLock tryLockExclusive(String path) {
+		Map<Integer, Boolean> modes = new TreeMap<>();
+		addPath(modes, path, true);
+		List<Lock> acquired = new ArrayList<>(modes.size());
+		for (Map.Entry<Integer, Boolean> mode : modes.entrySet()) {
+			ReentrantReadWriteLock stripe = stripes[mode.getKey()];
+			Lock lock = mode.getValue() ? stripe.writeLock() : stripe.readLock();
+			// the write lock is reentrant, but the path written by the current thread is locked as well
+			if (mode.getValue() && stripe.isWriteLockedByCurrentThread() || !lock.tryLock()) {
+				release(acquired);
+				return null;
+			}
+			acquired.add(lock);
+		}
+		return () -> release(acquired);
+	}
+
+	private void addPath(Map<Integer, Boolean> modes, String path, boolean exclusive) {
+		String current = "/";
+		for (String name : ContentPaths.split(path)) {
+			addStripe(modes, current, false);
+			current = ContentPaths.resolve(current, name);
+		}
+		addStripe(modes, current, exclusive);
+	}
+
+	/**
+	 * An exclusive lock covers a shared one of the same stripe.
+	 */
+	private void addStripe(Map<Integer, Boolean> modes, String path, boolean exclusive) {
+		modes.merge(Math.floorMod(path.hashCode(), stripes.length), exclusive, Boolean::logicalOr);
+	}
+
+	private PathLock acquire(Map<Integer, Boolean> modes) {
+		List<Lock> acquired = new ArrayList<>(modes.size());
+		try {
+			modes.forEach((stripe, exclusive) -> {
+				Lock lock = exclusive ? stripes[stripe].writeLock() : stripes[stripe].readLock();
+				lock.lock();
+				acquired.add(lock);
+			});
+		} catch (RuntimeException | Error e) {
+			release(acquired);
+			throw e;
+		}
+		return () -> release(acquired);
+	}
+
+	private static void release(List<Lock> acquired) {
+		for (int i = acquired.size() - 1; i >= 0; i--) {
+			acquired.get(i).unlock();
+		}
+	}
+
+	/**
+	 * Held locks, released when closed.
+	 */
+	public interface PathLock extends AutoCloseable {
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Content whose bytes can be read at any position, so byte ranges can be answered without reading the content from
+ * its start.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public interface RandomAccessContent {
+
+	long size() throws IOException;
+
+	/**
+	 * Writes count bytes starting at position to the stream, without changing the read position of the content.
+	 */
+	void transferTo(long position, long count, OutputStream out) throws IOException;
+}
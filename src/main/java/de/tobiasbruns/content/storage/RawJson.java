@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.IOUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Stored JSON content, which is written as it is instead of being parsed and serialized again. If the generator writes
+ * UTF-8 to a stream, the stored bytes are copied to the stream directly, so even large documents are never held in
+ * memory as a whole.
+ *
+ * A selection of the content streams the stored document through a token filter and only copies the selected parts.
+ *
+ * Content read from a stream is opened while the content is locked, so the document belongs to the header and MetaData
+ * it is returned with, even if it is replaced or deleted before it is written. That stream is consumed and closed by
+ * serializing the content, which can therefore be done once only.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class RawJson extends JsonSerializable.Base {
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final Supplier<InputStream> source;
+	private final TokenFilter filter;
+
+	public RawJson(byte[] data) {
+		this(() -> new ByteArrayInputStream(data), null);
+	}
+
+	/**
+	 * @param in the opened, UTF-8 encoded JSON document
+	 */
+	public RawJson(InputStream in) {
+		this(once(in), null);
+	}
+
+	private RawJson(Supplier<InputStream> source, TokenFilter filter) {
+		this.source = source;
+		this.filter = filter;
+	}
+
+	private static Supplier<InputStream> once(InputStream in) {
+		AtomicBoolean consumed = new AtomicBoolean();
+		return () -> {
+			if (consumed.getAndSet(true)) {
+				throw new IllegalStateException("The JSON content was already written");
+			}
+			return in;
+		};
+	}
+
+	public InputStream openStream() {
+		return source.get();
+	}
+
+	/**
+	 * @return the content reduced to the parts included by the filter, it is written as null if nothing is included
+	 */
+	public RawJson select(TokenFilter filter) {
+		return new RawJson(source, filter);
+	}
+
+	@Override
+	public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+		try (InputStream in = openStream()) {
+			if (filter != null) {
+				copySelection(in, gen);
+			} else if (gen.getOutputTarget() instanceof OutputStream) {
+				copyToStream(in, gen);
+			} else {
+				gen.writeRawValue(IOUtils.toString(in, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	/**
+	 * An empty raw value lets the generator write the separator in front of the value, after flushing its buffer the
+	 * document follows on the stream.
+	 */
+	private void copyToStream(InputStream in, JsonGenerator gen) throws IOException {
+		gen.writeRawValue("");
+		boolean flushStream = gen.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+		gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+		try {
+			gen.flush();
+		} finally {
+			gen.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, flushStream);
+		}
+		IOUtils.copy(in, (OutputStream) gen.getOutputTarget(), COPY_BUFFER_SIZE);
+	}
+
+	private void copySelection(InputStream in, JsonGenerator gen) throws IOException {
+		try (JsonParser parser = new FilteringParserDelegate(JSON_FACTORY.createParser(in), filter, true, true)) {
+			if (parser.nextToken() == null) {
+				gen.writeNull();
+			} else {
+				gen.copyCurrentStructure(parser);
+			}
+		}
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+			throws IOException {
+		serialize(gen, serializers);
+	}
+}
@@ -17,8 +17,10 @@ package de.tobiasbruns.content.storage;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class StorageApplication {
 
 	public static void main(String[] args) {
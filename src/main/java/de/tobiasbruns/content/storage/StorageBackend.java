@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Persists the content tree. All paths are logical paths relative to the storage root, separated by '/'.
+ *
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public interface StorageBackend {
+
+	/**
+	 * Writes the data of a file.
+	 */
+	interface DataWriter {
+		void write(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * @throws de.tobiasbruns.content.storage.exception.ResourceNotFoundException if nothing exists at the path
+	 */
+	BasicFileAttributes getAttributes(String path);
+
+	/**
+	 * Opens the data of the file at the path for reading.
+	 *
+	 * @throws de.tobiasbruns.content.storage.exception.ResourceNotFoundException if there is no file at the path
+	 */
+	InputStream openStream(String path);
+
+	/**
+	 * Writes the file at the path, replacing an existing file atomically. The folder of the file must exist.
+	 */
+	void writeFile(String path, DataWriter writer);
+
+	/**
+	 * Lists the names of the children accepted by the filter in their natural order, starting after the given name.
+	 */
+	List<String> listDirectory(String path, String after, int count, Predicate<String> nameFilter);
+
+	void createDirectory(String basePath, String name);
+
+	/**
+	 * Renames the file or folder within its folder.
+	 *
+	 * @return the path of the renamed file
+	 * @throws de.tobiasbruns.content.storage.exception.UnprocessableEntityException if something exists at the new
+	 *            path
+	 */
+	String renameFile(String oldPath, String newName);
+
+	/**
+	 * Deletes the file or the folder with all its children.
+	 */
+	void delete(String path);
+
+	/**
+	 * Runs several writes on the current thread. The backend may defer work they share, e.g. syncing directories,
+	 * until all of them are done.
+	 */
+	default void runBatch(Runnable writes) {
+		writes.run();
+	}
+}
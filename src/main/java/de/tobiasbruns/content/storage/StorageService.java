@@ -1,131 +1,549 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.util.Collection;
-import java.util.Map;
-
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-
-import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
-
-/**
- * created: 25.10.2016
- *
- * @author Tobias Bruns
- */
-@Service
-public class StorageService {
-
-	@Autowired
-	private ContentService contentService;
-	@Autowired
-	private MetaDataService metaDataService;
-	@Autowired
-	private ContentHeaderService contentHeaderService;
-	@Autowired
-	private FileSystemService fsService;
-
-	public Content<?> readContent(String path) {
-		Content<Object> readedContent = new Content<>();
-		ContentHeader header = loadContentHeader(path);
-		readedContent.setHeader(header);
-		readedContent.setContent(readContent(path, header));
-		readedContent.setMetaData(metaDataService.loadMetaData(path));
-		return readedContent;
-	}
-
-	private Object readContent(String path, ContentHeader header) {
-		if (header.isJsonContent()) {
-			return contentService.readJsonData(path);
-		} else {
-			return contentService.readBinaryData(path);
-		}
-	}
-
-	@SuppressWarnings("unchecked")
-	public String writeContent(String path, Content<?> content) {
-		path = renameIfNameChanged(path, content);
-		if (Content.IS_FOLDER.test(content)) {
-
-		} else if (content.getHeader().isJsonContent()) {
-			content.getMetaData().setContentType("application/json");
-			contentService.writeJsonData(path, ((Content<Map<String, Object>>) content).getContent());
-		} else {
-			contentService.writeBinaryData(path, (InputStream) content.getContent());
-		}
-		metaDataService.writeMetaData(path, content.getMetaData());
-		return path;
-	}
-
-	private String renameIfNameChanged(String path, Content<?> content) {
-		File origFile = fsService.getFile(path);
-		if (!StringUtils.equals(origFile.getName(), content.getHeader().getName())) {
-			if (content.getHeader().getType() == ContentItemType.LEAF) {
-				metaDataService.renameMetaDataFile(path, content.getHeader().getName());
-			}
-			return fsService.renameFile(path, content.getHeader().getName());
-		}
-		return path;
-	}
-
-	@SuppressWarnings("unchecked")
-	public String createContent(String path, Content<?> content) {
-		String newPath;
-		if (Content.IS_FOLDER.test(content)) {
-			newPath = contentService.createFolder(path, content.getHeader().getName());
-		} else if (Content.IS_JSON_CONTENT.test(content)) {
-			content.getMetaData().setContentType("application/json");
-			newPath = contentService.createJsonContent(path, content.getHeader().getName(),
-					(Map<String, Object>) content.getContent());
-		} else {
-			content.getMetaData().setContentType(content.getHeader().getContentType().get());
-			newPath = contentService.createBinaryContent(path, content.getHeader().getName(),
-					(InputStream) content.getContent());
-
-		}
-		metaDataService.writeMetaData(newPath, content.getMetaData());
-		return newPath;
-	}
-
-	public ContentHeader loadContentHeader(String path) {
-		return contentHeaderService.getContentHeader(path);
-	}
-
-	public MetaData loadMetaData(String path) {
-		return metaDataService.loadMetaData(path);
-	}
-
-	public void writeMetaData(String path, Collection<MetaDatum> metaData) {
-		MetaData loaded = loadMetaData(path);
-		loaded.setData(metaData);
-		metaDataService.writeMetaData(path, loaded);
-	}
-
-	public InputStream loadContentData(String path) {
-		try {
-			return new FileInputStream(fsService.getFile(path));
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException("Error reading file content", e);
-		}
-	}
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+import de.tobiasbruns.content.storage.PathLocks.PathLock;
+import de.tobiasbruns.content.storage.exception.FunctionalException;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException.MessageCode;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 25.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@Service
+public class StorageService {
+
+	@Autowired
+	private ContentService contentService;
+	@Autowired
+	private MetaDataService metaDataService;
+	@Autowired
+	private ContentHeaderService contentHeaderService;
+	@Autowired
+	private StorageBackend backend;
+	@Autowired
+	private PathLocks pathLocks;
+
+	public Content<?> readContent(String path) {
+		checkContentPath(path);
+		try (PathLock lock = pathLocks.lockShared(path)) {
+			return readContentUnlocked(resolveUnlocked(path), Paging.FIRST_PAGE);
+		}
+	}
+
+	public Content<?> readContent(ContentHandle handle) {
+		return readContent(handle, Paging.FIRST_PAGE);
+	}
+
+	public Content<?> readContent(ContentHandle handle, Paging paging) {
+		return readContent(handle, paging, read -> {
+		});
+	}
+
+	/**
+	 * Reads the content of the handle, or of its current version, if it was written since the handle was resolved. The
+	 * consumer gets the handle of the version read while the path is still locked, e.g. to send its validators.
+	 */
+	public Content<?> readContent(ContentHandle handle, Paging paging, Consumer<ContentHandle> versionRead) {
+		try (PathLock lock = pathLocks.lockShared(handle.getPath())) {
+			ContentHandle current = refresh(handle);
+			versionRead.accept(current);
+			return readContentUnlocked(current, paging);
+		}
+	}
+
+	private Content<?> readContentUnlocked(ContentHandle handle, Paging paging) {
+		Content<Object> readedContent = new Content<>();
+		readedContent.setHeader(handle.getHeader());
+		readedContent.setContent(readContentData(handle, paging));
+		readedContent.setMetaData(handle.getMetaData());
+		return readedContent;
+	}
+
+	/**
+	 * Resolves the content again, if it was written since the handle was resolved, so the data read belong to the
+	 * header and MetaData returned with them.
+	 */
+	private ContentHandle refresh(ContentHandle handle) {
+		BasicFileAttributes attributes = backend.getAttributes(handle.getPath());
+		// content linked to another blob may keep the modification time, but not the file
+		if (Objects.equals(attributes.lastModifiedTime(), handle.getAttributes().lastModifiedTime())
+				&& attributes.size() == handle.getAttributes().size()
+				&& Objects.equals(attributes.fileKey(), handle.getAttributes().fileKey())) {
+			return handle;
+		}
+		return resolveUnlocked(handle.getPath());
+	}
+
+	private Object readContentData(ContentHandle handle, Paging paging) {
+		if (handle.getHeader().isJsonContent()) {
+			return handle.getAttributes().isRegularFile() ? contentService.readRawJsonData(handle)
+					: contentService.readJsonData(handle, paging);
+		} else {
+			return contentService.readBinaryData(handle);
+		}
+	}
+
+	public void patchContent(ContentHandle handle, JsonNode patch, boolean mergePatch) {
+		patchContent(handle, patch, mergePatch, IfMatch.ANY);
+	}
+
+	/**
+	 * Patches JSON content in place, the MetaData stay as they are apart from the version and the size before encoding.
+	 */
+	public void patchContent(ContentHandle handle, JsonNode patch, boolean mergePatch, IfMatch ifMatch) {
+		if (!handle.getHeader().isJsonContent() || !handle.getAttributes().isRegularFile()) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.NOT_JSON_CONTENT);
+		}
+		try (PathLock lock = pathLocks.lockExclusive(handle.getPath())) {
+			ContentHandle current = refresh(handle);
+			ifMatch.check(current.getMetaData());
+			MetaData metaData = metaDataService.loadOwnMetaData(current.getPath(), false);
+			contentService.patchJsonData(current, patch, mergePatch, metaData);
+			setNextVersion(metaData, metaData);
+			metaDataService.writeMetaData(current.getPath(), metaData);
+		}
+	}
+
+	/**
+	 * Compiles the JSON Pointers addressing the fields to select, so invalid ones are rejected before any content is
+	 * opened.
+	 */
+	public TokenFilter compileFields(List<String> fields) {
+		try {
+			return JsonPointerFilter.of(fields);
+		} catch (IllegalArgumentException e) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_FIELDS);
+		}
+	}
+
+	/**
+	 * Reduces JSON content to the subtrees selected by the filter, any other content is returned as it is.
+	 */
+	public Content<?> selectFields(Content<?> content, TokenFilter filter) {
+		if (!(content.getContent() instanceof RawJson)) {
+			return content;
+		}
+		Content<RawJson> selected = new Content<>();
+		selected.setHeader(content.getHeader());
+		selected.setContent(((RawJson) content.getContent()).select(filter));
+		selected.setMetaData(content.getMetaData());
+		return selected;
+	}
+
+	/**
+	 * Reads the attributes and MetaData of the content at once, so they belong to the same version.
+	 */
+	public ContentHandle resolve(String path) {
+		checkContentPath(path);
+		try (PathLock lock = pathLocks.lockShared(path)) {
+			return resolveUnlocked(path);
+		}
+	}
+
+	private ContentHandle resolveUnlocked(String path) {
+		BasicFileAttributes attributes = backend.getAttributes(path);
+		MetaData metaData = metaDataService.loadMetaData(path, attributes.isDirectory());
+		ContentHeader header = contentHeaderService.getContentHeader(ContentPaths.getName(path), attributes, metaData);
+		return new ContentHandle(path, attributes, metaData, header);
+	}
+
+	/**
+	 * Renames the content, if its name changed, and writes its data and MetaData as one step, which concurrent writes
+	 * and reads of the content do not interleave with.
+	 */
+	public String writeContent(String path, Content<?> content) {
+		return writeContent(path, content, IfMatch.ANY);
+	}
+
+	/**
+	 * Like {@link #writeContent(String, Content)}, but only if the content still has a version the If-Match header
+	 * allows. The check and the write are not interleaved with other writes of the content.
+	 */
+	public String writeContent(String path, Content<?> content, IfMatch ifMatch) {
+		checkContentPath(path);
+		String name = content.getHeader().getName();
+		String newPath = name == null ? path : ContentPaths.resolve(ContentPaths.getParent(path), name);
+		try (PathLock lock = pathLocks.lockExclusive(path, newPath)) {
+			newPath = writeContentUnlocked(path, content, ifMatch);
+			metaDataService.writeMetaData(newPath, content.getMetaData());
+			return newPath;
+		}
+	}
+
+	/**
+	 * Writes the data of the content, the caller writes its MetaData afterwards.
+	 */
+	@SuppressWarnings("unchecked")
+	private String writeContentUnlocked(String path, Content<?> content, IfMatch ifMatch) {
+		MetaData stored = metaDataService.loadOwnMetaData(path, backend.getAttributes(path).isDirectory());
+		ifMatch.check(stored);
+		setNextVersion(content.getMetaData(), stored);
+		path = renameIfNameChanged(path, content);
+		if (Content.IS_FOLDER.test(content)) {
+
+		} else if (!isStreamed(content) && content.getHeader().isJsonContent()) {
+			setContentType(content, "application/json");
+			contentService.writeJsonData(path, ((Content<Map<String, Object>>) content).getContent(),
+					content.getMetaData());
+		} else {
+			setContentType(content, content.getHeader().getContentType().get());
+			contentService.writeBinaryData(path, (InputStream) content.getContent(), content.getMetaData());
+		}
+		return path;
+	}
+
+	/**
+	 * Makes the MetaData, which replace the stored ones, the next version of the same content. Content without stored
+	 * MetaData gets a new creation stamp, so its versions are told apart from those of content deleted at its path.
+	 */
+	private void setNextVersion(MetaData metaData, MetaData stored) {
+		long stamp = metaDataService.nextStamp();
+		metaData.setVersion(stored.getVersion() + 1);
+		metaData.setCreated(stored.getCreated() != 0 ? stored.getCreated() : stamp);
+		metaData.setModified(stamp);
+	}
+
+	/**
+	 * Sets the content type and the encoding the content is stored with, which is never taken from the client.
+	 */
+	private void setContentType(Content<?> content, String contentType) {
+		content.getMetaData().setContentType(contentType);
+		content.getMetaData().setContentEncoding(contentService.selectEncoding(contentType));
+	}
+
+	/**
+	 * The blobs behind the binary content and the MetaData index are not content themselves.
+	 */
+	private void checkContentPath(String path) {
+		if (BlobStore.isBlobPath(path) || MetaDataIndex.isIndexPath(path)) {
+			throw new ResourceNotFoundException(MessageCode.FILE_NOT_FOUND);
+		}
+	}
+
+	/**
+	 * Streamed content is written as it is, even if it is JSON.
+	 */
+	private boolean isStreamed(Content<?> content) {
+		return content.getContent() instanceof InputStream;
+	}
+
+	/**
+	 * Renaming never replaces other content. That is checked first, so no MetaData are moved onto the other content.
+	 */
+	private String renameIfNameChanged(String path, Content<?> content) {
+		if (!StringUtils.equals(ContentPaths.getName(path), content.getHeader().getName())) {
+			checkNotExisting(ContentPaths.resolve(ContentPaths.getParent(path), content.getHeader().getName()));
+			metaDataService.renameMetaData(path, content.getHeader().getName(),
+					content.getHeader().getType() == ContentItemType.NODE);
+			String newPath = backend.renameFile(path, content.getHeader().getName());
+			contentService.evictCachedData(path);
+			contentService.evictCachedData(newPath);
+			if (content.getHeader().getType() == ContentItemType.NODE) {
+				metaDataService.evictCachedData(path);
+				metaDataService.evictCachedData(newPath);
+			}
+			return newPath;
+		}
+		return path;
+	}
+
+	private void checkNotExisting(String path) {
+		try {
+			backend.getAttributes(path);
+		} catch (ResourceNotFoundException e) {
+			return;
+		}
+		throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_EXISTS);
+	}
+
+	public String createContent(String path, Content<?> content) {
+		checkContentPath(path + "/" + content.getHeader().getName());
+		try (PathLock lock = pathLocks.lockExclusive(path + "/" + content.getHeader().getName())) {
+			String newPath = createContentUnlocked(path, content);
+			metaDataService.writeMetaData(newPath, content.getMetaData());
+			return newPath;
+		}
+	}
+
+	/**
+	 * Creates the data of the content, the caller writes its MetaData afterwards.
+	 */
+	@SuppressWarnings("unchecked")
+	private String createContentUnlocked(String path, Content<?> content) {
+		String newPath;
+		if (Content.IS_FOLDER.test(content)) {
+			newPath = contentService.createFolder(path, content.getHeader().getName());
+		} else if (!isStreamed(content) && Content.IS_JSON_CONTENT.test(content)) {
+			setContentType(content, "application/json");
+			newPath = contentService.createJsonContent(path, content.getHeader().getName(),
+					(Map<String, Object>) content.getContent(), content.getMetaData());
+		} else {
+			setContentType(content, content.getHeader().getContentType().get());
+			newPath = contentService.createBinaryContent(path, content.getHeader().getName(),
+					(InputStream) content.getContent(), content.getMetaData());
+
+		}
+		// content may be created again in place of existing content, its version keeps counting then
+		setNextVersion(content.getMetaData(), metaDataService.loadOwnMetaData(newPath, Content.IS_FOLDER.test(content)));
+		return newPath;
+	}
+
+	/**
+	 * Applies the operations of a bulk request, given relative to the folder, while all of their paths are locked.
+	 * The MetaData of the written content are stored together at the end, before an operation overlapping content
+	 * with pending MetaData is applied and if an operation fails unexpectedly. Every operation succeeds or fails on its
+	 * own.
+	 *
+	 * @param firstIndex
+	 *           the index of the first operation within the request
+	 * @return the results of the operations in their order
+	 */
+	public List<BulkResult> applyBatch(String folder, List<BulkOperation> operations, int firstIndex) {
+		BulkResult[] results = new BulkResult[operations.size()];
+		String[] paths = new String[operations.size()];
+		List<String> lockedPaths = new ArrayList<>();
+		for (int i = 0; i < operations.size(); i++) {
+			try {
+				paths[i] = resolveOperationPath(folder, operations.get(i));
+				lockedPaths.add(paths[i]);
+				String name = getOperationContent(operations.get(i)).map(c -> c.getHeader().getName()).orElse(null);
+				if (name != null) {
+					lockedPaths.add(ContentPaths.resolve(ContentPaths.getParent(paths[i]), name));
+				}
+			} catch (FunctionalException e) {
+				results[i] = BulkResult.failure(firstIndex + i, operations.get(i).getPath(), e);
+			}
+		}
+
+		Map<String, MetaData> pendingMetaData = new LinkedHashMap<>();
+		try (PathLock lock = pathLocks.lockExclusive(lockedPaths.toArray(new String[lockedPaths.size()]))) {
+			backend.runBatch(() -> {
+				try {
+					for (int i = 0; i < operations.size(); i++) {
+						if (results[i] == null) {
+							results[i] = applyOperation(paths[i], operations.get(i), firstIndex + i, pendingMetaData);
+						}
+					}
+				} finally {
+					writePendingMetaData(pendingMetaData);
+				}
+			});
+		}
+		return Arrays.asList(results);
+	}
+
+	private String resolveOperationPath(String folder, BulkOperation operation) {
+		if (operation.getOp() == null || operation.getPath() == null
+				|| (operation.getOp() != BulkOperation.Type.DELETE && operation.getContent() == null)) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_OPERATION);
+		}
+		List<String> names = ContentPaths.split(operation.getPath());
+		if (names.isEmpty() || names.contains(".") || names.contains("..")) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_OPERATION);
+		}
+		String path = ContentPaths.normalize(ContentPaths.resolve(folder, operation.getPath()));
+		checkContentPath(path);
+		return path;
+	}
+
+	private Optional<Content<Map<String, Object>>> getOperationContent(BulkOperation operation) {
+		return operation.getOp() == BulkOperation.Type.DELETE ? Optional.empty()
+				: Optional.ofNullable(operation.getContent());
+	}
+
+	private BulkResult applyOperation(String path, BulkOperation operation, int index,
+			Map<String, MetaData> pendingMetaData) {
+		if (overlapsPendingMetaData(path, operation, pendingMetaData)) {
+			writePendingMetaData(pendingMetaData);
+		}
+		IfMatch ifMatch = operation.getVersion() == null ? IfMatch.ANY : IfMatch.ofVersion(operation.getVersion());
+		try {
+			switch (operation.getOp()) {
+			case CREATE: {
+				Content<Map<String, Object>> content = prepareOperationContent(operation);
+				content.getHeader().setName(ContentPaths.getName(path));
+				createContentUnlocked(ContentPaths.getParent(path), content);
+				pendingMetaData.put(path, content.getMetaData());
+				return BulkResult.success(index, path, HttpStatus.CREATED, content.getMetaData().getVersion());
+			}
+			case UPDATE: {
+				Content<Map<String, Object>> content = prepareOperationContent(operation);
+				if (content.getHeader().getName() == null) {
+					content.getHeader().setName(ContentPaths.getName(path));
+				}
+				String newPath = writeContentUnlocked(path, content, ifMatch);
+				pendingMetaData.put(newPath, content.getMetaData());
+				return BulkResult.success(index, newPath, HttpStatus.OK, content.getMetaData().getVersion());
+			}
+			default:
+				deleteContentUnlocked(path, ifMatch);
+				return BulkResult.success(index, path, HttpStatus.NO_CONTENT, null);
+			}
+		} catch (FunctionalException e) {
+			return BulkResult.failure(index, path, e);
+		}
+	}
+
+	/**
+	 * Only JSON content and folders can be given in a bulk request.
+	 */
+	private Content<Map<String, Object>> prepareOperationContent(BulkOperation operation) {
+		Content<Map<String, Object>> content = operation.getContent();
+		if (content.getHeader().getType() == null) {
+			content.getHeader().setType(ContentItemType.LEAF);
+		}
+		if (!content.getHeader().getContentType().isPresent()) {
+			content.getHeader().setContentType("application/json");
+		}
+		if (!content.getHeader().isJsonContent()) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_OPERATION);
+		}
+		return content;
+	}
+
+	/**
+	 * Content created below a folder does not depend on the MetaData of the folder, anything else does.
+	 */
+	private boolean overlapsPendingMetaData(String path, BulkOperation operation,
+			Map<String, MetaData> pendingMetaData) {
+		if (operation.getOp() == BulkOperation.Type.CREATE) {
+			return pendingMetaData.containsKey(path);
+		}
+		return pendingMetaData.keySet().stream().anyMatch(pendingPath -> pendingPath.equals(path)
+				|| pendingPath.startsWith(path + "/") || path.startsWith(pendingPath + "/"));
+	}
+
+	private void writePendingMetaData(Map<String, MetaData> pendingMetaData) {
+		if (!pendingMetaData.isEmpty()) {
+			metaDataService.writeMetaData(new LinkedHashMap<>(pendingMetaData));
+			pendingMetaData.clear();
+		}
+	}
+
+	private void deleteContentUnlocked(String path, IfMatch ifMatch) {
+		boolean directory = backend.getAttributes(path).isDirectory();
+		ifMatch.check(metaDataService.loadOwnMetaData(path, directory));
+		backend.delete(path);
+		contentService.evictCachedData(path);
+		metaDataService.deleteMetaData(path, directory);
+	}
+
+	/**
+	 * Finds the content below the folder by a MetaDatum given as "key:value".
+	 */
+	public Content<?> queryContent(ContentHandle handle, String query, Paging paging) {
+		int separator = query.indexOf(':');
+		if (separator < 1) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_QUERY);
+		}
+		if (!handle.getAttributes().isDirectory()) {
+			throw new UnprocessableEntityException(UnprocessableEntityException.MessageCode.PATH_NOT_DIR);
+		}
+		Content<Map<String, Object>> result = new Content<>();
+		result.setHeader(handle.getHeader());
+		result.setMetaData(handle.getMetaData());
+		result.setContent(contentService.findContent(handle.getPath(), query.substring(0, separator),
+				query.substring(separator + 1), paging));
+		return result;
+	}
+
+	public ContentHeader loadContentHeader(String path) {
+		return resolve(path).getHeader();
+	}
+
+	public MetaData loadMetaData(String path) {
+		try (PathLock lock = pathLocks.lockShared(path)) {
+			return metaDataService.loadMetaData(path);
+		}
+	}
+
+	public void writeMetaData(String path, Collection<MetaDatum> metaData) {
+		writeMetaData(path, metaData, IfMatch.ANY);
+	}
+
+	public void writeMetaData(String path, Collection<MetaDatum> metaData, IfMatch ifMatch) {
+		checkContentPath(path);
+		try (PathLock lock = pathLocks.lockExclusive(path)) {
+			MetaData loaded = metaDataService.loadMetaData(path);
+			ifMatch.check(loaded);
+			loaded.setVersion(loaded.getVersion() + 1);
+			loaded.setData(metaData);
+			metaDataService.writeMetaData(path, loaded);
+		}
+	}
+
+	public InputStream loadContentData(ContentHandle handle) {
+		return loadContentData(handle, read -> {
+		});
+	}
+
+	/**
+	 * Loads the data of the handle, or of its current version, if it was written since the handle was resolved. The
+	 * consumer gets the handle of the version read while the path is still locked.
+	 */
+	public InputStream loadContentData(ContentHandle handle, Consumer<ContentHandle> versionRead) {
+		try (PathLock lock = pathLocks.lockShared(handle.getPath())) {
+			ContentHandle current = refresh(handle);
+			versionRead.accept(current);
+			return contentService.readBinaryData(current);
+		}
+	}
+
+	/**
+	 * Loads the data as it is stored, so content with a content encoding is not decoded.
+	 */
+	public InputStream loadStoredContentData(ContentHandle handle) {
+		return loadStoredContentData(handle, read -> {
+		});
+	}
+
+	/**
+	 * Loads the data as it is stored of the handle, or of its current version, if it was written since the handle was
+	 * resolved. The consumer gets the handle of the version read while the path is still locked.
+	 */
+	public InputStream loadStoredContentData(ContentHandle handle, Consumer<ContentHandle> versionRead) {
+		try (PathLock lock = pathLocks.lockShared(handle.getPath())) {
+			ContentHandle current = refresh(handle);
+			versionRead.accept(current);
+			return contentService.readStoredData(current);
+		}
+	}
+}
@@ -1,55 +1,63 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage.exception;
-
-import org.springframework.http.HttpStatus;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-public class UnprocessableEntityException extends FunctionalException {
-
-   private static final long serialVersionUID = 1L;
-
-   public enum MessageCode {
-      PATH_NOT_DIR("The given Path is not a Directory", "storage.file.not_directory"),
-      MISSING_CONTENT_TYPE("The content-type attribute is missing", "storage.file.missing_content_type");
-
-      private final String defaultMessage;
-      private final String messageCode;
-
-      private MessageCode(String defaultMessage, String messageCode) {
-         this.defaultMessage = defaultMessage;
-         this.messageCode = messageCode;
-      }
-
-      public String getDefaultMessage() {
-         return defaultMessage;
-      }
-
-      public String getMessageCode() {
-         return messageCode;
-      }
-
-   }
-
-   public UnprocessableEntityException(MessageCode code) {
-      super(code.getDefaultMessage(), code.getMessageCode(), HttpStatus.UNPROCESSABLE_ENTITY);
-   }
-
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+public class UnprocessableEntityException extends FunctionalException {
+
+   private static final long serialVersionUID = 1L;
+
+   public enum MessageCode {
+      PATH_NOT_DIR("The given Path is not a Directory", "storage.file.not_directory"),
+      MISSING_CONTENT_TYPE("The content-type attribute is missing", "storage.file.missing_content_type"),
+      INVALID_LIMIT("The limit must be a positive number", "storage.listing.invalid_limit"),
+      INVALID_FIELDS("The fields must be JSON Pointers", "storage.content.invalid_fields"),
+      INVALID_PATCH("The patch can not be applied to the content", "storage.content.invalid_patch"),
+      PATCH_TEST_FAILED("A test operation of the patch failed", "storage.content.patch_test_failed"),
+      NOT_JSON_CONTENT("The content is not a JSON document", "storage.content.not_json"),
+      INVALID_QUERY("The query must be given as key:value", "storage.query.invalid_query"),
+      INVALID_OPERATION("The bulk operation is malformed", "storage.bulk.invalid_operation"),
+      PATH_EXISTS("Something already exists at the path", "storage.file.exists");
+
+      private final String defaultMessage;
+      private final String messageCode;
+
+      private MessageCode(String defaultMessage, String messageCode) {
+         this.defaultMessage = defaultMessage;
+         this.messageCode = messageCode;
+      }
+
+      public String getDefaultMessage() {
+         return defaultMessage;
+      }
+
+      public String getMessageCode() {
+         return messageCode;
+      }
+
+   }
+
+   public UnprocessableEntityException(MessageCode code) {
+      super(code.getDefaultMessage(), code.getMessageCode(), HttpStatus.UNPROCESSABLE_ENTITY);
+   }
+
+}
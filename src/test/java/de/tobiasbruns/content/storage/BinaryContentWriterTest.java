@@ -0,0 +1,173 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class BinaryContentWriterTest {
+
+	private BinaryContentWriter writer = new BinaryContentWriter();
+
+	private MockHttpServletRequest request = new MockHttpServletRequest();
+	private MockHttpServletResponse response = new MockHttpServletResponse();
+
+	private File testFile;
+
+	@Before
+	public void initTest() throws IOException {
+		testFile = File.createTempFile("binarycontent", ".bin");
+		Files.write(testFile.toPath(), "test data".getBytes());
+	}
+
+	@After
+	public void cleanup() {
+		testFile.delete();
+	}
+
+	@Test
+	public void transferFile() throws IOException {
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getContentAsByteArray()).isEqualTo("test data".getBytes());
+		assertThat(response.getContentLengthLong()).isEqualTo(9);
+	}
+
+	@Test
+	public void transferOpenedVersion() throws IOException {
+		request.setAttribute(BinaryContentWriter.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+		FileContentInputStream data = new FileContentInputStream(testFile);
+		// replaced like a write does, after the stream was opened
+		File newFile = File.createTempFile("binarycontent", ".bin");
+		Files.write(newFile.toPath(), "new".getBytes());
+		Files.move(newFile.toPath(), testFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		writer.write(data, request, response);
+
+		assertThat(response.getContentAsByteArray()).isEqualTo("test data".getBytes());
+		assertThat(response.getContentLengthLong()).isEqualTo(9);
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_FILENAME_ATTR)).isNull();
+	}
+
+	@Test
+	public void sendImmutableFile() throws IOException {
+		request.setAttribute(BinaryContentWriter.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+		FileContentInputStream data = new FileContentInputStream(testFile);
+		data.setImmutableFile(testFile.toPath());
+
+		writer.write(data, request, response);
+
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat(response.getContentLengthLong()).isEqualTo(9);
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_FILENAME_ATTR))
+				.isEqualTo(testFile.getCanonicalPath());
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_START_ATTR)).isEqualTo(0L);
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_END_ATTR)).isEqualTo(9L);
+	}
+
+	@Test
+	public void sendImmutableFileRange() throws IOException {
+		request.setAttribute(BinaryContentWriter.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+		request.addHeader("Range", "bytes=0-3");
+		FileContentInputStream data = new FileContentInputStream(testFile);
+		data.setImmutableFile(testFile.toPath());
+
+		writer.write(data, request, response);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_START_ATTR)).isEqualTo(0L);
+		assertThat(request.getAttribute(BinaryContentWriter.SENDFILE_END_ATTR)).isEqualTo(4L);
+	}
+
+	@Test
+	public void writeSingleRange() throws IOException {
+		request.addHeader("Range", "bytes=5-");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 5-8/9");
+		assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getContentAsString()).isEqualTo("data");
+	}
+
+	@Test
+	public void writeSuffixRange() throws IOException {
+		request.addHeader("Range", "bytes=-2");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 7-8/9");
+		assertThat(response.getContentAsString()).isEqualTo("ta");
+	}
+
+	@Test
+	public void writeMultipleRanges() throws IOException {
+		response.setContentType("text/plain");
+		request.addHeader("Range", "bytes=0-3,5-8");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+		String body = response.getContentAsString();
+		assertThat(body).contains("Content-Range: bytes 0-3/9\r\n\r\ntest")
+				.contains("Content-Range: bytes 5-8/9\r\n\r\ndata").contains("Content-Type: text/plain");
+		assertThat(response.getContentLengthLong()).isEqualTo(body.length());
+	}
+
+	@Test
+	public void ignoreRangeOfOutdatedContent() throws IOException {
+		response.setHeader("ETag", "\"current\"");
+		request.addHeader("Range", "bytes=0-3");
+		request.addHeader("If-Range", "\"outdated\"");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo("test data");
+	}
+
+	@Test
+	public void rangeNotSatisfiable() throws IOException {
+		request.addHeader("Range", "bytes=20-30");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */9");
+	}
+
+	@Test
+	public void ignoreInvalidRange() throws IOException {
+		request.addHeader("Range", "lines=1-2");
+
+		writer.write(new FileContentInputStream(testFile), request, response);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo("test data");
+	}
+
+	@Test
+	public void copyStream() {
+		writer.write(new ByteArrayInputStream("test data".getBytes()), request, response);
+
+		assertThat(response.getContentAsByteArray()).isEqualTo("test data".getBytes());
+	}
+}
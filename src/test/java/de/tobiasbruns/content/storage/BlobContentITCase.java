@@ -0,0 +1,79 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "storage.blobs.enabled=true", "storage.root=target/blobs" })
+public class BlobContentITCase {
+
+	@Autowired
+	private StorageService service;
+
+	@BeforeClass
+	@AfterClass
+	public static void cleanup() throws IOException {
+		FileUtils.deleteDirectory(new File("target/blobs"));
+	}
+
+	@Test
+	public void modifyPathsSharingBlobOnTheirOwn() throws Exception {
+		String first = service.createContent("/", buildContent("first.bin"));
+		ContentHandle firstHandle = service.resolve(first);
+		Thread.sleep(10);
+
+		String second = service.createContent("/", buildContent("second.bin"));
+		ContentHandle secondHandle = service.resolve(second);
+
+		assertThat(Files.isSameFile(new File("target/blobs/first.bin").toPath(),
+				new File("target/blobs/second.bin").toPath())).isTrue();
+		assertThat(service.resolve(first).getLastModified()).isEqualTo(firstHandle.getLastModified());
+		assertThat(service.resolve(first).getETag("binary")).isEqualTo(firstHandle.getETag("binary"));
+		assertThat(secondHandle.getLastModified()).isGreaterThan(firstHandle.getLastModified());
+	}
+
+	@Test
+	public void offerBlobFileForSending() throws Exception {
+		String path = service.createContent("/", buildContent("sent.bin"));
+		ContentHandle handle = service.resolve(path);
+
+		try (InputStream data = service.loadContentData(handle)) {
+			assertThat(data).isInstanceOf(FileContentInputStream.class);
+			Path blob = ((FileContentInputStream) data).getImmutableFile();
+			assertThat(blob).isNotNull();
+			assertThat(blob.getFileName().toString()).isEqualTo(handle.getMetaData().getBlob().get());
+			assertThat(Files.isSameFile(blob, new File("target/blobs/sent.bin").toPath())).isTrue();
+		}
+	}
+
+	private Content<?> buildContent(String name) {
+		Content<ByteArrayInputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName(name);
+		content.getHeader().setContentType("application/octet-stream");
+		content.setContent(new ByteArrayInputStream("shared data".getBytes()));
+		return content;
+	}
+}
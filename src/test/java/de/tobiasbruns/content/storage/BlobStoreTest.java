@@ -0,0 +1,130 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class BlobStoreTest {
+
+	private BlobStore blobStore = new BlobStore();
+	private FileSystemService fsService = new FileSystemService();
+
+	private File testRoot = new File("testBlobRoot");
+
+	@Before
+	public void initTest() {
+		ReflectionTestUtils.setField(fsService, "storageRootDirectory", testRoot.getPath());
+		fsService.initBean();
+		ReflectionTestUtils.setField(blobStore, "fsService", fsService);
+		ReflectionTestUtils.setField(blobStore, "enabled", true);
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		FileUtils.deleteDirectory(testRoot);
+	}
+
+	@Test
+	public void storeOnce() throws IOException {
+		String hash = store("/a.txt", "test data");
+		assertThat(store("/b.txt", "test data")).isEqualTo(hash);
+
+		assertThat(new File(testRoot, "a.txt")).hasContent("test data");
+		assertThat(Files.isSameFile(new File(testRoot, "a.txt").toPath(), new File(testRoot, "b.txt").toPath()))
+				.isTrue();
+		assertThat(blobStore.getBlobFile(hash)).exists();
+		assertThat(blobStore.getBlobFile(hash).getParent().toFile().list()).hasSize(1);
+	}
+
+	@Test
+	public void keepModificationTimeOfSharedBlob() throws IOException {
+		String hash = store("/a.txt", "test data");
+		FileTime stored = FileTime.fromMillis(1000);
+		Files.setLastModifiedTime(blobStore.getBlobFile(hash), stored);
+
+		store("/b.txt", "test data");
+
+		assertThat(Files.getLastModifiedTime(blobStore.getBlobFile(hash))).isEqualTo(stored);
+	}
+
+	@Test
+	public void getImmutableFileOfLinkedContent() throws IOException {
+		String hash = store("/a.txt", "test data");
+		fsService.writeFile("/b.txt", out -> out.write("test data".getBytes()));
+
+		assertThat(blobStore.getImmutableFile(hash, fsService.getAttributes("/a.txt")))
+				.isEqualTo(blobStore.getBlobFile(hash));
+		assertThat(blobStore.getImmutableFile(hash, fsService.getAttributes("/b.txt"))).isNull();
+		assertThat(blobStore.getImmutableFile("00" + hash.substring(2), fsService.getAttributes("/a.txt"))).isNull();
+	}
+
+	@Test
+	public void storeHashOfContent() {
+		assertThat(store("/a.txt", "test data"))
+				.isEqualTo("916f0027a575074ce72a331777c3478d6513f786a591bd892da1a577bf2335f9");
+	}
+
+	@Test
+	public void replaceContent() {
+		store("/a.txt", "old data");
+		store("/a.txt", "new data");
+
+		assertThat(new File(testRoot, "a.txt")).hasContent("new data");
+	}
+
+	@Test
+	public void collectUnusedBlobs() {
+		ReflectionTestUtils.setField(blobStore, "unlinkGraceMillis", 0);
+		String oldHash = store("/a.txt", "old data");
+		store("/b.txt", "old data");
+		String newHash = store("/a.txt", "new data");
+
+		blobStore.collectGarbage();
+		assertThat(blobStore.getBlobFile(oldHash)).exists();
+
+		store("/b.txt", "new data");
+		blobStore.collectGarbage();
+
+		assertThat(blobStore.getBlobFile(oldHash)).doesNotExist();
+		assertThat(blobStore.getBlobFile(newHash)).exists();
+		assertThat(new File(testRoot, "b.txt")).hasContent("new data");
+	}
+
+	@Test
+	public void keepRecentlyUnlinkedBlobs() {
+		String oldHash = store("/a.txt", "old data");
+		store("/a.txt", "new data");
+
+		blobStore.collectGarbage();
+
+		assertThat(blobStore.getBlobFile(oldHash)).exists();
+	}
+
+	@Test
+	public void isBlobPath() {
+		assertThat(BlobStore.isBlobPath("/.blobs/ab/abcd")).isTrue();
+		assertThat(BlobStore.isBlobPath("//.blobs")).isTrue();
+		assertThat(BlobStore.isBlobPath("/folder/.blobs")).isFalse();
+		assertThat(BlobStore.isBlobPath("/.blobsfolder")).isFalse();
+	}
+
+	private String store(String path, String data) {
+		return blobStore.store(path, new ByteArrayInputStream(data.getBytes()));
+	}
+}
@@ -0,0 +1,115 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BulkServiceTest {
+
+	@InjectMocks
+	private BulkService service;
+	@Mock
+	private StorageService storageService;
+	@Spy
+	private ObjectMapper objectMapper = new ObjectMapper();
+	@Mock
+	private BasicFileAttributes attributes;
+
+	private final List<Integer> batchSizes = new ArrayList<>();
+
+	@Before
+	public void initTest() {
+		ReflectionTestUtils.setField(service, "batchSize", 2);
+		when(attributes.isDirectory()).thenReturn(true);
+		when(storageService.resolve(anyString()))
+				.thenReturn(new ContentHandle("/folder", attributes, new MetaData(), new ContentHeader()));
+		when(storageService.applyBatch(anyString(), anyListOf(BulkOperation.class), anyInt()))
+				.thenAnswer(invocation -> {
+					List<?> batch = (List<?>) invocation.getArguments()[1];
+					int firstIndex = (Integer) invocation.getArguments()[2];
+					batchSizes.add(batch.size());
+					List<BulkResult> results = new ArrayList<>();
+					for (int i = 0; i < batch.size(); i++) {
+						results.add(BulkResult.success(firstIndex + i, "/folder/" + i, HttpStatus.NO_CONTENT, null));
+					}
+					return results;
+				});
+	}
+
+	@Test
+	public void applyInBatches() throws IOException {
+		List<String> results = apply("{\"op\":\"delete\",\"path\":\"a.json\"}\n"
+				+ "{\"op\":\"delete\",\"path\":\"b.json\"}\n{\"op\":\"delete\",\"path\":\"c.json\"}\n");
+
+		assertThat(batchSizes).containsExactly(2, 1);
+		verify(storageService).applyBatch(eq("/folder"), anyListOf(BulkOperation.class), eq(0));
+		verify(storageService).applyBatch(eq("/folder"), anyListOf(BulkOperation.class), eq(2));
+		assertThat(results).hasSize(3);
+		assertThat(results.get(2)).contains("\"index\":2", "\"status\":204");
+	}
+
+	@Test
+	public void continueAfterInvalidOperation() throws IOException {
+		List<String> results = apply("{\"op\":\"delete\",\"path\":\"a.json\"}\n{\"op\":\"move\",\"path\":\"x.json\"}\n"
+				+ "{\"op\":\"delete\",\"path\":\"b.json\"}\n");
+
+		assertThat(batchSizes).containsExactly(1, 1);
+		verify(storageService).applyBatch(eq("/folder"), anyListOf(BulkOperation.class), eq(2));
+		assertThat(results).hasSize(3);
+		assertThat(results.get(1)).contains("\"index\":1", "\"path\":\"x.json\"", "\"status\":422",
+				"storage.bulk.invalid_operation");
+		assertThat(results.get(2)).contains("\"index\":2", "\"status\":204");
+	}
+
+	@Test
+	public void stopAtMalformedLine() throws IOException {
+		List<String> results = apply("{\"op\":\"delete\",\"path\":\"a.json\"}\n{\"op\":\n"
+				+ "{\"op\":\"delete\",\"path\":\"b.json\"}\n");
+
+		assertThat(batchSizes).containsExactly(1);
+		assertThat(results).hasSize(2);
+		assertThat(results.get(1)).contains("\"index\":1", "\"status\":422", "storage.bulk.invalid_operation");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void failOnFile() throws IOException {
+		when(attributes.isDirectory()).thenReturn(false);
+
+		apply("{\"op\":\"delete\",\"path\":\"a.json\"}\n");
+	}
+
+	private List<String> apply(String operations) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		service.apply("/folder", new ByteArrayInputStream(operations.getBytes(StandardCharsets.UTF_8)), out);
+		return Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+	}
+}
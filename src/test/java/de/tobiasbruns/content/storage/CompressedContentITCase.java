@@ -0,0 +1,132 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "storage.backend=memory", "storage.compression.content_types=application/json,text/*" })
+public class CompressedContentITCase {
+
+	private static final String TEXT = StringUtils.repeat("compressible text ", 100);
+
+	@Autowired
+	private StorageService service;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void storeTextCompressed() throws IOException {
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("compressed.txt");
+		content.getHeader().setContentType("text/plain");
+		content.setContent(new ByteArrayInputStream(TEXT.getBytes("UTF-8")));
+		String path = service.createContent("/", content);
+
+		ContentHandle handle = service.resolve(path);
+		assertThat(handle.getMetaData().getContentEncoding().orElse(null)).isEqualTo(ContentEncodingService.GZIP);
+		assertThat(handle.getAttributes().size()).isLessThan(TEXT.length());
+		assertThat(handle.getHeader().getSize()).isEqualTo(Optional.of((long) TEXT.length()));
+		try (InputStream data = service.loadContentData(handle)) {
+			assertThat(IOUtils.toString(data, "UTF-8")).isEqualTo(TEXT);
+		}
+		try (InputStream data = new GZIPInputStream(service.loadStoredContentData(handle))) {
+			assertThat(IOUtils.toString(data, "UTF-8")).isEqualTo(TEXT);
+		}
+	}
+
+	@Test
+	public void storeBinaryUncompressed() {
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("image.jpeg");
+		content.getHeader().setContentType("image/jpeg");
+		content.setContent(new ByteArrayInputStream(TEXT.getBytes()));
+		String path = service.createContent("/", content);
+
+		ContentHandle handle = service.resolve(path);
+		assertThat(handle.getMetaData().getContentEncoding().isPresent()).isFalse();
+		assertThat(handle.getAttributes().size()).isEqualTo(TEXT.length());
+	}
+
+	@Test
+	public void storeJsonCompressed() throws IOException {
+		Content<Map<String, Object>> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("compressed.json");
+		content.getHeader().setContentType("application/json");
+		content.setContent(Collections.singletonMap("text", TEXT));
+		String path = service.createContent("/", content);
+
+		ContentHandle handle = service.resolve(path);
+		assertThat(handle.getMetaData().getContentEncoding().orElse(null)).isEqualTo(ContentEncodingService.GZIP);
+		String json = objectMapper.writeValueAsString(service.readContent(handle, Paging.FIRST_PAGE).getContent());
+		assertThat(objectMapper.readTree(json).get("text").asText()).isEqualTo(TEXT);
+		assertThat(handle.getHeader().getSize())
+				.isEqualTo(Optional.of((long) objectMapper.writeValueAsBytes(content.getContent()).length));
+
+		service.patchContent(handle, objectMapper.readTree("{\"text\":\"patched\"}"), true);
+		assertThat(service.resolve(path).getHeader().getSize())
+				.isEqualTo(Optional.of((long) "{\"text\":\"patched\"}".length()));
+	}
+
+	@Test
+	public void listDecodedSize() throws IOException {
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("listed.txt");
+		content.getHeader().setContentType("text/plain");
+		content.setContent(new ByteArrayInputStream(TEXT.getBytes()));
+		service.createContent("/", content);
+
+		JsonNode folder = objectMapper.readTree(objectMapper
+				.writeValueAsString(service.readContent(service.resolve("/"), Paging.FIRST_PAGE).getContent()));
+		for (JsonNode child : folder.get("sub")) {
+			if (child.get("name").asText().equals("listed.txt")) {
+				assertThat(child.get("size").asLong()).isEqualTo(TEXT.length());
+				return;
+			}
+		}
+		fail("listed.txt not listed");
+	}
+
+	@Test
+	public void storeMalformedTypeUncompressed() {
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("malformed.txt");
+		content.getHeader().setContentType("text");
+		content.setContent(new ByteArrayInputStream(TEXT.getBytes()));
+		String path = service.createContent("/", content);
+
+		ContentHandle handle = service.resolve(path);
+		assertThat(handle.getMetaData().getContentEncoding().isPresent()).isFalse();
+		assertThat(handle.getAttributes().size()).isEqualTo(TEXT.length());
+	}
+}
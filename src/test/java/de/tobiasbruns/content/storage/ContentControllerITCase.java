@@ -1,217 +1,445 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import static org.hamcrest.CoreMatchers.is;
-import static org.hamcrest.Matchers.hasSize;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
-
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-
-import org.apache.commons.io.FileUtils;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
-import org.junit.FixMethodOrder;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.junit.runners.MethodSorters;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.http.MediaType;
-import org.springframework.mock.web.MockHttpServletRequest;
-import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.test.context.junit4.SpringRunner;
-import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
-import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
-import org.springframework.test.web.servlet.request.RequestPostProcessor;
-
-/**
- * created: 27.10.2016
- *
- * @author Tobias Bruns
- */
-@RunWith(SpringRunner.class)
-@SpringBootTest
-@AutoConfigureMockMvc
-@AutoConfigureRestDocs("target/generated-snippets")
-@FixMethodOrder(MethodSorters.NAME_ASCENDING)
-public class ContentControllerITCase {
-
-	@Autowired
-	private MockMvc mockMvc;
-
-	private final static String BASE = "http://localhost";
-
-	@BeforeClass
-	public static void init() throws IOException {
-		cleanup();
-	}
-
-	@AfterClass
-	public static void cleanup() throws IOException {
-		File rootDir = new File("testroot");
-		if (rootDir.exists()) {
-			FileUtils.cleanDirectory(rootDir);
-		}
-	}
-
-	@Test
-	public void test01_createFolder() throws Exception {
-		mockMvc.perform(post(BASE + "/").contentType(MediaType.APPLICATION_JSON_UTF8)
-				.content("{\"header\":{\"name\":\"newfolder\",\"type\":\"NODE\"}}")) //
-				.andExpect(status().isCreated()) //
-				.andExpect(header().string("Location", "http://localhost:8080/newfolder"))
-				.andDo(TestUtils.writeDoc("createFolder"));
-	}
-
-	@Test
-	public void test02_addMetadata() throws Exception {
-		mockMvc.perform(put(BASE + "/newfolder").param("projection", "metadata")
-				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "salami") + ","
-						+ buildMetaDatumJson("pizza", "hawaii") + "]"))
-				.andExpect(status().isNoContent()).andDo(TestUtils.writeDoc("addMetaData"));
-	}
-
-	@Test
-	public void test03_readMetaData() throws Exception {
-		mockMvc.perform(get(BASE + "/newfolder").param("projection", "metadata"))//
-				.andExpect(status().isOk())//
-				.andExpect(jsonPath("$.content[0].key", is("toast")))//
-				.andExpect(jsonPath("$.content[0].value", is("salami")))//
-				.andExpect(jsonPath("$.content", hasSize(2)))//
-				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder?projection=metadata")))
-				.andDo(TestUtils.writeDoc("readMetaData"));
-	}
-
-	@Test
-	public void test04_addJsonContent() throws Exception {
-		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json", "",
-				"{\"headline\":\"suppi\"}");
-
-		mockMvc.perform(post(BASE + "/newfolder").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
-				.andExpect(status().isCreated())
-				.andExpect(header().string("Location", "http://localhost:8080/newfolder/test1.json"))
-				.andDo(TestUtils.writeDoc("addJsonContent"));
-	}
-
-	@Test
-	public void test05_readJsonContent() throws Exception {
-		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
-				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder/test1.json")))
-				.andDo(TestUtils.writeDoc("readJsonContent"));
-	}
-
-	@Test
-	public void test06_readInheritMetaData() throws Exception {
-		mockMvc.perform(get(BASE + "/newfolder/test1.json").param("projection", "metadata"))//
-				.andExpect(status().isOk())//
-				.andExpect(jsonPath("$.content[0].key", is("toast")))//
-				.andExpect(jsonPath("$.content[0].value", is("salami")))//
-				.andExpect(jsonPath("$.content[0].inherited", is(true)))//
-				.andExpect(jsonPath("$.content[1].key", is("pizza")))//
-				.andExpect(jsonPath("$.content[1].value", is("hawaii")))//
-				.andExpect(jsonPath("$.content[1].inherited", is(true)));//
-	}
-
-	@Test
-	public void test07_editJsonContent() throws Exception {
-		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json",
-				buildMetaDatumJson("toast", "schinken"), "{\"headline\":\"Viel besser\"}");
-
-		mockMvc.perform(
-				put(BASE + "/newfolder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
-				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder/test1.json")))
-				.andExpect(status().isOk());
-
-		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
-				.andExpect(jsonPath("$.metaData.data[0].key", is("toast")))//
-				.andExpect(jsonPath("$.metaData.data[0].value", is("schinken")))//
-				.andExpect(jsonPath("$.metaData.data[0].inherited", is(false)));//
-	}
-
-	@Test
-	public void test08_renameFolder() throws Exception {
-		mockMvc.perform(put(BASE + "/newfolder").contentType(MediaType.APPLICATION_JSON_UTF8)
-				.content("{\"header\":{\"name\":\"folder\",\"type\":\"NODE\"}}")).andExpect(status().isOk()) //
-				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/folder")));
-	}
-
-	@Test
-	public void test09_renameFile() throws Exception {
-		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test2.json", "",
-				"{\"headline\":\"Viel besser\"}");
-
-		mockMvc.perform(put(BASE + "/folder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
-				.andExpect(status().isOk())
-				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/folder/test2.json")))
-				.andDo(TestUtils.writeDoc("renameFile"));
-
-		mockMvc.perform(get(BASE + "/folder/test2.json")).andExpect(status().isOk());
-		mockMvc.perform(get(BASE + "/folder/test2.json").param("projection", "metadata")).andExpect(status().isOk());
-	}
-
-	@Test
-	public void test10_readFolder() throws Exception {
-		mockMvc.perform(get(BASE + "/")).andExpect(status().isOk()).andDo(TestUtils.writeDoc("readFolder"));
-	}
-
-	@Test
-	public void test11_uploadBinaryFile() throws Exception {
-		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
-
-		mockMvc.perform(fileUpload(BASE + "/folder")
-				.file(new MockMultipartFile("file", "testimage.jpeg", "image/jpeg", testStream)))
-				.andExpect(status().isCreated())//
-				.andExpect(header().string("Location", "http://localhost:8080/folder/testimage.jpeg"))
-				.andDo(TestUtils.writeDoc("addBinaryContent"));
-	}
-
-	@Test
-	public void test12_loadBinaryFile() throws Exception {
-		mockMvc.perform(get(BASE + "/folder/testimage.jpeg")).andExpect(status().isOk())
-				.andExpect(content().contentType(MediaType.IMAGE_JPEG))//
-				.andDo(TestUtils.writeDoc("readBinaryContent"));
-	}
-
-	@Test
-	public void test12_uploadNewBinaryFile() throws Exception {
-		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
-		MockMultipartFile mockFile = new MockMultipartFile("file", "testimage.jpeg", "image/jpeg", testStream);
-
-		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders
-				.fileUpload(BASE + "/folder/testimage.jpeg");
-		builder.with(new RequestPostProcessor() {
-			@Override
-			public MockHttpServletRequest postProcessRequest(MockHttpServletRequest request) {
-				request.setMethod("PUT");
-				return request;
-			}
-		});
-
-		mockMvc.perform(builder.file(mockFile)).andExpect(status().is2xxSuccessful());
-	}
-
-	static String buildMetaDatumJson(String key, String value) {
-		String metaDatumTempl = TestUtils.loadTextFile("requests/metaDatum.json");
-		return String.format(metaDatumTempl, key, value);
-	}
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * created: 27.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureRestDocs("target/generated-snippets")
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ContentControllerITCase {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private final static String BASE = "http://localhost";
+
+	@BeforeClass
+	public static void init() throws IOException {
+		cleanup();
+	}
+
+	@AfterClass
+	public static void cleanup() throws IOException {
+		File rootDir = new File("testroot");
+		if (rootDir.exists()) {
+			FileUtils.cleanDirectory(rootDir);
+		}
+	}
+
+	@Test
+	public void test01_createFolder() throws Exception {
+		mockMvc.perform(post(BASE + "/").contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"header\":{\"name\":\"newfolder\",\"type\":\"NODE\"}}")) //
+				.andExpect(status().isCreated()) //
+				.andExpect(header().string("Location", "http://localhost:8080/newfolder"))
+				.andDo(TestUtils.writeDoc("createFolder"));
+	}
+
+	@Test
+	public void test02_addMetadata() throws Exception {
+		mockMvc.perform(put(BASE + "/newfolder").param("projection", "metadata")
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "salami") + ","
+						+ buildMetaDatumJson("pizza", "hawaii") + "]"))
+				.andExpect(status().isNoContent()).andDo(TestUtils.writeDoc("addMetaData"));
+	}
+
+	@Test
+	public void test03_readMetaData() throws Exception {
+		mockMvc.perform(get(BASE + "/newfolder").param("projection", "metadata"))//
+				.andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content[0].key", is("toast")))//
+				.andExpect(jsonPath("$.content[0].value", is("salami")))//
+				.andExpect(jsonPath("$.content", hasSize(2)))//
+				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder?projection=metadata")))
+				.andDo(TestUtils.writeDoc("readMetaData"));
+	}
+
+	@Test
+	public void test04_addJsonContent() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json", "",
+				"{\"headline\":\"suppi\"}");
+
+		mockMvc.perform(post(BASE + "/newfolder").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
+				.andExpect(status().isCreated())
+				.andExpect(header().string("Location", "http://localhost:8080/newfolder/test1.json"))
+				.andDo(TestUtils.writeDoc("addJsonContent"));
+	}
+
+	@Test
+	public void test05_readJsonContent() throws Exception {
+		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.headline", is("suppi")))
+				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder/test1.json")))
+				.andDo(TestUtils.writeDoc("readJsonContent"));
+	}
+
+	@Test
+	public void test05_readJsonContentFields() throws Exception {
+		mockMvc.perform(get(BASE + "/newfolder/test1.json?fields=/headline,/missing")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.headline", is("suppi")))
+				.andExpect(jsonPath("$.header.name", is("test1.json")));
+
+		mockMvc.perform(get(BASE + "/newfolder/test1.json?fields=/missing")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content").doesNotExist());
+	}
+
+	@Test
+	public void test06_readInheritMetaData() throws Exception {
+		mockMvc.perform(get(BASE + "/newfolder/test1.json").param("projection", "metadata"))//
+				.andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content[0].key", is("toast")))//
+				.andExpect(jsonPath("$.content[0].value", is("salami")))//
+				.andExpect(jsonPath("$.content[0].inherited", is(true)))//
+				.andExpect(jsonPath("$.content[1].key", is("pizza")))//
+				.andExpect(jsonPath("$.content[1].value", is("hawaii")))//
+				.andExpect(jsonPath("$.content[1].inherited", is(true)));//
+	}
+
+	@Test
+	public void test07_editJsonContent() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json",
+				buildMetaDatumJson("toast", "schinken"), "{\"headline\":\"Viel besser\"}");
+
+		mockMvc.perform(
+				put(BASE + "/newfolder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
+				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/newfolder/test1.json")))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.headline", is("Viel besser")))//
+				.andExpect(jsonPath("$.metaData.data[0].key", is("toast")))//
+				.andExpect(jsonPath("$.metaData.data[0].value", is("schinken")))//
+				.andExpect(jsonPath("$.metaData.data[0].inherited", is(false)));//
+	}
+
+	@Test
+	public void test07_editJsonContentIfMatch() throws Exception {
+		String eTag = mockMvc.perform(get(BASE + "/newfolder/test1.json")).andReturn().getResponse()
+				.getHeader("ETag");
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json",
+				buildMetaDatumJson("toast", "schinken"), "{\"headline\":\"Viel besser\"}");
+
+		String newETag = mockMvc
+				.perform(put(BASE + "/newfolder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8)
+						.header("If-Match", eTag).content(content))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(put(BASE + "/newfolder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8)
+				.header("If-Match", eTag).content(content.replace("Viel besser", "Veraltet")))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
+				.andExpect(header().string("ETag", newETag))
+				.andExpect(jsonPath("$.content.headline", is("Viel besser")));
+	}
+
+	@Test
+	public void test07_editJsonContentAsHalJson() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json",
+				buildMetaDatumJson("toast", "schinken"), "{\"headline\":\"Viel besser\"}");
+
+		mockMvc.perform(put(BASE + "/newfolder/test1.json").contentType("application/hal+json").content(content))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.header.contentType", is("application/json")))
+				.andExpect(jsonPath("$.content.headline", is("Viel besser")))
+				.andExpect(jsonPath("$.content.header").doesNotExist());
+	}
+
+	@Test
+	public void test07_patchJsonContent() throws Exception {
+		String eTag = mockMvc.perform(get(BASE + "/newfolder/test1.json")).andReturn().getResponse()
+				.getHeader("ETag");
+
+		String newETag = mockMvc
+				.perform(patch(BASE + "/newfolder/test1.json").contentType(JsonPatch.MERGE_PATCH)
+						.header("If-Match", eTag).content("{\"subline\":\"neu\"}"))
+				.andExpect(status().isNoContent()).andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(patch(BASE + "/newfolder/test1.json").contentType(JsonPatch.JSON_PATCH)
+				.header("If-Match", eTag).content("[{\"op\":\"remove\",\"path\":\"/subline\"}]"))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(patch(BASE + "/newfolder/test1.json").contentType(JsonPatch.JSON_PATCH)
+				.header("If-Match", newETag)
+				.content("[{\"op\":\"test\",\"path\":\"/subline\",\"value\":\"neu\"},"
+						+ "{\"op\":\"move\",\"from\":\"/subline\",\"path\":\"/footer\"}]"))
+				.andExpect(status().isNoContent());
+
+		mockMvc.perform(get(BASE + "/newfolder/test1.json")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.headline", is("Viel besser")))
+				.andExpect(jsonPath("$.content.footer", is("neu")))
+				.andExpect(jsonPath("$.content.subline").doesNotExist());
+	}
+
+	@Test
+	public void test08_renameFolder() throws Exception {
+		mockMvc.perform(put(BASE + "/newfolder").contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"header\":{\"name\":\"folder\",\"type\":\"NODE\"}}")).andExpect(status().isOk()) //
+				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/folder")));
+	}
+
+	@Test
+	public void test09_renameFile() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test2.json", "",
+				"{\"headline\":\"Viel besser\"}");
+
+		mockMvc.perform(put(BASE + "/folder/test1.json").contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._links.self.href", is("http://localhost:8080/folder/test2.json")))
+				.andDo(TestUtils.writeDoc("renameFile"));
+
+		mockMvc.perform(get(BASE + "/folder/test2.json")).andExpect(status().isOk());
+		mockMvc.perform(get(BASE + "/folder/test2.json").param("projection", "metadata")).andExpect(status().isOk());
+	}
+
+	@Test
+	public void test10_readFolder() throws Exception {
+		mockMvc.perform(get(BASE + "/")).andExpect(status().isOk()).andDo(TestUtils.writeDoc("readFolder"));
+	}
+
+	@Test
+	public void test10_readFolderWithoutMetaData() throws Exception {
+		mockMvc.perform(get(BASE + "/folder").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.sub[*].name", not(hasItem(endsWith(".metadata.json")))));
+	}
+
+	@Test
+	public void test10_readFolderPage() throws Exception {
+		for (String name : new String[] { "page1.txt", "page2.txt" }) {
+			mockMvc.perform(post(BASE + "/folder").param("name", name).contentType(MediaType.TEXT_PLAIN).content(name))
+					.andExpect(status().isCreated());
+		}
+		String folder = mockMvc.perform(get(BASE + "/folder").accept(MediaType.APPLICATION_JSON)).andReturn()
+				.getResponse().getContentAsString();
+		List<String> names = JsonPath.read(folder, "$.content.sub[*].name");
+
+		mockMvc.perform(get(BASE + "/folder?limit=1").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content.sub", hasSize(1)))//
+				.andExpect(jsonPath("$.content.next", is(names.get(0))))//
+				.andExpect(jsonPath("$._links.next.href",
+						is("http://localhost:8080/folder?limit=1&cursor=" + names.get(0))));
+
+		mockMvc.perform(get(BASE + "/folder?limit=1&cursor=" + names.get(0)).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content.sub[0].name", is(names.get(1))));
+		mockMvc.perform(get(BASE + "/folder?limit=0").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isUnprocessableEntity());
+	}
+
+	@Test
+	public void test10_readFolderQuery() throws Exception {
+		mockMvc.perform(put(BASE + "/folder").param("projection", "metadata")
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "salami") + "]"))
+				.andExpect(status().isNoContent());
+		mockMvc.perform(put(BASE + "/folder/page2.txt").param("projection", "metadata")
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "brot") + "]"))
+				.andExpect(status().isNoContent());
+
+		mockMvc.perform(get(BASE + "/").param("query", "toast:salami")).andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content.matches",
+						is(Arrays.asList("/folder", "/folder/page1.txt", "/folder/test2.json"))));
+		mockMvc.perform(get(BASE + "/?query=toast:salami&limit=2")).andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content.matches", hasSize(2)))//
+				.andExpect(jsonPath("$._links.next.href",
+						is("http://localhost:8080/?query=toast:salami&limit=2&cursor=/folder/page1.txt")));
+		mockMvc.perform(get(BASE + "/folder").param("query", "toast:brot")).andExpect(status().isOk())//
+				.andExpect(jsonPath("$.content.matches", is(Arrays.asList("/folder/page2.txt"))));
+		mockMvc.perform(get(BASE + "/folder").param("query", "toast")).andExpect(status().isUnprocessableEntity());
+	}
+
+	@Test
+	public void test11_uploadBinaryFile() throws Exception {
+		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
+
+		mockMvc.perform(fileUpload(BASE + "/folder")
+				.file(new MockMultipartFile("file", "testimage.jpeg", "image/jpeg", testStream)))
+				.andExpect(status().isCreated())//
+				.andExpect(header().string("Location", "http://localhost:8080/folder/testimage.jpeg"))
+				.andDo(TestUtils.writeDoc("addBinaryContent"));
+	}
+
+	@Test
+	public void test12_loadBinaryFile() throws Exception {
+		mockMvc.perform(get(BASE + "/folder/testimage.jpeg")).andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.IMAGE_JPEG))//
+				.andDo(TestUtils.writeDoc("readBinaryContent"));
+	}
+
+	@Test
+	public void test12_uploadNewBinaryFile() throws Exception {
+		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
+		MockMultipartFile mockFile = new MockMultipartFile("file", "testimage.jpeg", "image/jpeg", testStream);
+
+		MockMultipartHttpServletRequestBuilder builder = MockMvcRequestBuilders
+				.fileUpload(BASE + "/folder/testimage.jpeg");
+		builder.with(new RequestPostProcessor() {
+			@Override
+			public MockHttpServletRequest postProcessRequest(MockHttpServletRequest request) {
+				request.setMethod("PUT");
+				return request;
+			}
+		});
+
+		mockMvc.perform(builder.file(mockFile)).andExpect(status().is2xxSuccessful());
+	}
+
+	@Test
+	public void test13_loadBinaryFileRange() throws Exception {
+		mockMvc.perform(get(BASE + "/folder/testimage.jpeg").header("Range", "bytes=0-9"))
+				.andExpect(status().isPartialContent())//
+				.andExpect(header().string("Accept-Ranges", "bytes"))//
+				.andExpect(header().string("Content-Range", startsWith("bytes 0-9/")))//
+				.andExpect(content().contentType(MediaType.IMAGE_JPEG))//
+				.andExpect(content().bytes(Arrays.copyOf(
+						IOUtils.toByteArray(TestUtils.loadFile("requests/testimg.jpeg")), 10)));
+	}
+
+	@Test
+	public void test13_streamBinaryFile() throws Exception {
+		byte[] data = IOUtils.toByteArray(TestUtils.loadFile("requests/testimg.jpeg"));
+
+		mockMvc.perform(post(BASE + "/folder").param("name", "streamed.jpeg").contentType(MediaType.IMAGE_JPEG)
+				.content(data)).andExpect(status().isCreated())//
+				.andExpect(header().string("Location", "http://localhost:8080/folder/streamed.jpeg"));
+
+		mockMvc.perform(put(BASE + "/folder/streamed.jpeg").contentType(MediaType.IMAGE_JPEG)
+				.content(Arrays.copyOf(data, 10))).andExpect(status().isNoContent());
+
+		mockMvc.perform(get(BASE + "/folder/streamed.jpeg")).andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.IMAGE_JPEG))//
+				.andExpect(content().bytes(Arrays.copyOf(data, 10)));
+	}
+
+	@Test
+	public void test14_conditionalGet() throws Exception {
+		String eTag = mockMvc.perform(get(BASE + "/folder/test2.json")).andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get(BASE + "/folder/test2.json").header("If-None-Match", eTag))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(put(BASE + "/folder").param("projection", "metadata")
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "tomate") + "]"))
+				.andExpect(status().isNoContent());
+
+		mockMvc.perform(get(BASE + "/folder/test2.json").header("If-None-Match", eTag)).andExpect(status().isOk());
+
+		String binaryETag = mockMvc.perform(put(BASE + "/folder/testimage.jpeg").param("projection", "metadata")
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "brot") + "]"))
+				.andExpect(status().isNoContent()).andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get(BASE + "/folder/testimage.jpeg").header("If-None-Match", binaryETag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	public void test15_applyBulk() throws Exception {
+		String metaDatum = buildMetaDatumJson("toast", "bulk").replaceAll("[\\r\\n\\t]", "");
+		String operations = String.join("\n", //
+				"{\"op\":\"create\",\"path\":\"bulk\",\"content\":{\"header\":{\"type\":\"NODE\"}}}",
+				"{\"op\":\"create\",\"path\":\"bulk/a.json\",\"content\":{\"content\":{\"n\":1},"
+						+ "\"metaData\":{\"data\":[" + metaDatum + "]}}}",
+				"{\"op\":\"create\",\"path\":\"bulk/b.json\",\"content\":{\"content\":{\"n\":2}}}",
+				"{\"op\":\"update\",\"path\":\"bulk/a.json\",\"version\":1,\"content\":{\"content\":{\"n\":3},"
+						+ "\"metaData\":{\"data\":[" + metaDatum + "]}}}",
+				"{\"op\":\"update\",\"path\":\"bulk/b.json\",\"version\":5,\"content\":{\"content\":{\"n\":4}}}",
+				"{\"op\":\"delete\",\"path\":\"bulk/b.json\"}", //
+				"{\"op\":\"delete\",\"path\":\"bulk/missing.json\"}", //
+				"not json");
+
+		String[] results = mockMvc
+				.perform(post(BASE + "/folder").contentType(BulkService.NDJSON).content(operations))
+				.andExpect(status().isOk()).andExpect(content().contentType(BulkService.NDJSON)).andReturn()
+				.getResponse().getContentAsString().split("\n");
+
+		assertThat(results).hasSize(8);
+		assertThat(readResult(results[0], "$.status")).isEqualTo(201);
+		assertThat(readResult(results[0], "$.path")).isEqualTo("/folder/bulk");
+		assertThat(readResult(results[1], "$.status")).isEqualTo(201);
+		assertThat(readResult(results[2], "$.status")).isEqualTo(201);
+		assertThat(readResult(results[3], "$.status")).isEqualTo(200);
+		assertThat(readResult(results[3], "$.version")).isEqualTo(2);
+		assertThat(readResult(results[4], "$.status")).isEqualTo(412);
+		assertThat(readResult(results[5], "$.status")).isEqualTo(204);
+		assertThat(readResult(results[6], "$.status")).isEqualTo(404);
+		assertThat(readResult(results[7], "$.index")).isEqualTo(7);
+		assertThat(readResult(results[7], "$.error")).isEqualTo("storage.bulk.invalid_operation");
+
+		mockMvc.perform(get(BASE + "/folder/bulk/a.json")).andExpect(status().isOk())
+				.andExpect(header().string("ETag", startsWith("\"2.")))
+				.andExpect(jsonPath("$.content.n", is(3)))//
+				.andExpect(jsonPath("$.metaData.data[0].value", is("bulk")));
+		mockMvc.perform(get(BASE + "/folder/bulk/b.json")).andExpect(status().isNotFound());
+		mockMvc.perform(get(BASE + "/folder?query=toast:bulk")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.matches", hasSize(1)));
+	}
+
+	private Object readResult(String result, String path) {
+		return JsonPath.read(result, path);
+	}
+
+	static String buildMetaDatumJson(String key, String value) {
+		String metaDatumTempl = TestUtils.loadTextFile("requests/metaDatum.json");
+		return String.format(metaDatumTempl, key, value);
+	}
+}
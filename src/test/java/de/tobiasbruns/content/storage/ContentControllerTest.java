@@ -1,221 +1,468 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import static de.tobiasbruns.content.storage.ContentControllerITCase.buildMetaDatumJson;
-import static org.assertj.core.api.Assertions.assertThat;
-import static org.hamcrest.CoreMatchers.is;
-import static org.mockito.Matchers.*;
-import static org.mockito.Mockito.*;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Map;
-
-import javax.servlet.ServletOutputStream;
-import javax.servlet.http.HttpServletResponse;
-
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.http.MediaType;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
-import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.setup.MockMvcBuilders;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
-
-/**
- * created: 25.10.2016
- *
- * @author Tobias Bruns
- */
-@RunWith(MockitoJUnitRunner.class)
-public class ContentControllerTest {
-
-	@InjectMocks
-	private ContentController controller;
-	@Mock
-	private StorageService service;
-	@Mock
-	private HttpServletResponse response;
-	@Mock
-	private ObjectMapper mapper;
-
-	@Captor
-	private ArgumentCaptor<Content<?>> contentCaptor;
-
-	private MockMvc mockMvc;
-
-	private static final String PATH_TO_CONTENT = "/path/to/content.file";
-	private static final String REQUEST = "http://localhost" + PATH_TO_CONTENT;
-
-	@Before
-	public void initTest() throws IOException {
-		mockMvc = MockMvcBuilders.standaloneSetup(controller)
-				.setMessageConverters(new MappingJackson2HttpMessageConverter()).build();
-
-		when(service.readContent(anyString())).thenReturn(buildTestContent());
-		when(service.createContent(anyString(), any(Content.class))).thenReturn("/path/to/new/content");
-
-		when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
-	}
-
-	private Content buildTestContent() {
-		Content content = new Content<>();
-		content.getHeader().setContentType("application/json");
-		return content;
-	}
-
-	@Test
-	public void loadContent() throws Exception {
-		mockMvc.perform(get(REQUEST))//
-				.andExpect(status().isOk())//
-				.andExpect(content().contentType("application/hal+json"));
-
-		verify(service).readContent(eq(PATH_TO_CONTENT));
-	}
-
-	@Test
-	public void loadMetaData() throws Exception {
-		when(service.loadMetaData(anyString())).thenReturn(new MetaData());
-
-		mockMvc.perform(get(REQUEST).param("projection", "metadata")).andExpect(status().isOk());
-
-		verify(service).loadMetaData(eq(PATH_TO_CONTENT));
-	}
-
-	@Test
-	public void loadContentData() throws Exception {
-		when(service.loadContentData(anyString())).thenReturn(new ByteArrayInputStream("test data".getBytes()));
-		when(service.loadContentHeader(anyString())).thenReturn(buildLeafHeader("images/jpeg"));
-
-		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isOk()) //
-				.andExpect(content().bytes("test data".getBytes())) //
-				.andExpect(content().contentType("images/jpeg"));
-
-		verify(service).loadContentData(eq(PATH_TO_CONTENT));
-		verify(service).loadContentHeader(anyString());
-	}
-
-	@Test
-	public void loadContentDataOfDirectory() throws Exception {
-		when(service.loadContentHeader(anyString())).thenReturn(buildNodeHeader());
-
-		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isUnprocessableEntity());
-	}
-
-	@Test
-	public void missingContentType() throws Exception {
-		when(service.loadContentData(anyString())).thenReturn(new ByteArrayInputStream("test data".getBytes()));
-		when(service.loadContentHeader(anyString())).thenReturn(buildLeafHeader(null));
-
-		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isOk()) //
-				.andExpect(content().contentType("application/octet-stream"));
-	}
-
-	@Test
-	public void createFolder() throws Exception {
-		mockMvc.perform(post(REQUEST).contentType(MediaType.APPLICATION_JSON_UTF8)
-				.content(String.format(TestUtils.loadTextFile("requests/createFolder.json"), "new_folder")))
-				.andExpect(status().isCreated())
-				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
-
-		verify(service).createContent(eq(PATH_TO_CONTENT), contentCaptor.capture());
-		assertThat(contentCaptor.getValue().getHeader().getName()).isEqualTo("new_folder");
-	}
-
-	@Test
-	public void addJsonContent() throws Exception {
-		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1", "",
-				"{\"headline\":\"Best\"}");
-
-		mockMvc.perform(post(REQUEST).contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
-				.andExpect(status().isCreated())
-				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
-
-		verify(service).createContent(eq("/path/to/content.file"), any(Content.class));
-	}
-
-	@Test
-	public void addBinaryContent() throws Exception {
-		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
-
-		mockMvc.perform(
-				fileUpload(REQUEST).file(new MockMultipartFile("file", "testimg.jpeg", "images/jpeg", testStream)))//
-				.andExpect(status().isCreated())
-				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
-
-		verify(service).createContent(eq("/path/to/content.file"), contentCaptor.capture());
-		ContentHeader header = contentCaptor.getValue().getHeader();
-		assertThat(header.getContentType().isPresent()).isTrue();
-		assertThat(header.getContentType().get()).isEqualTo("images/jpeg");
-		assertThat(header.getName()).isEqualTo("testimg.jpeg");
-	}
-
-	@Test
-	public void changeMetaData() throws Exception {
-		mockMvc.perform(put(REQUEST).param("projection", "metadata")//
-				.contentType(MediaType.APPLICATION_JSON_UTF8)//
-				.content("[" + buildMetaDatumJson("toast", "salami") + "," + buildMetaDatumJson("pizza", "hawaii")
-						+ "]"))
-				.andExpect(status().isNoContent());
-
-		verify(service).writeMetaData(eq(PATH_TO_CONTENT), anyCollectionOf(MetaDatum.class));
-	}
-
-	@SuppressWarnings("unchecked")
-	@Test
-	public void changeJsonContent() throws Exception {
-		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json", "",
-				"{\"headline\":\"Much better\"}");
-
-		mockMvc.perform(put(REQUEST)//
-				.contentType(MediaType.APPLICATION_JSON_UTF8).content(content))//
-				.andExpect(jsonPath("$.header.name", is("test1.json"))).andExpect(status().isOk());
-
-		verify(service).writeContent(eq(PATH_TO_CONTENT), contentCaptor.capture());
-		assertThat(contentCaptor.getValue().getContent()).isInstanceOf(Map.class);
-		assertThat((Map<String, Object>) contentCaptor.getValue().getContent()).containsEntry("headline",
-				"Much better");
-	}
-
-	private ContentHeader buildLeafHeader(String contentType) {
-		ContentHeader header = new ContentHeader();
-		if (contentType != null) {
-			header.setContentType(contentType);
-		}
-		header.setType(ContentItemType.LEAF);
-		return header;
-	}
-
-	private ContentHeader buildNodeHeader() {
-		ContentHeader header = new ContentHeader();
-		header.setType(ContentItemType.NODE);
-		return header;
-	}
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import static de.tobiasbruns.content.storage.ContentControllerITCase.buildMetaDatumJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 25.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ContentControllerTest {
+
+	@InjectMocks
+	private ContentController controller;
+	@Mock
+	private StorageService service;
+	@Mock
+	private HttpServletResponse response;
+	@Mock
+	private ObjectMapper mapper;
+	@Mock
+	private BasicFileAttributes attributes;
+	@Spy
+	private BinaryContentWriter binaryContentWriter = new BinaryContentWriter();
+	@Mock
+	private BulkService bulkService;
+
+	@Captor
+	private ArgumentCaptor<Content<?>> contentCaptor;
+
+	private MockMvc mockMvc;
+
+	private static final String PATH_TO_CONTENT = "/path/to/content.file";
+	private static final String REQUEST = "http://localhost" + PATH_TO_CONTENT;
+	private static final long LAST_MODIFIED = 1476828000000L;
+
+	@Before
+	public void initTest() throws IOException {
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setMessageConverters(new MappingJackson2HttpMessageConverter())
+				.setControllerAdvice(new FunctionalExceptionHandler()).build();
+
+		when(attributes.lastModifiedTime()).thenReturn(FileTime.fromMillis(LAST_MODIFIED));
+		when(service.resolve(anyString())).thenReturn(buildHandle(buildTestContent().getHeader()));
+		when(service.readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class)))
+				.thenAnswer(readVersion(buildTestContent()));
+		when(service.createContent(anyString(), any(Content.class))).thenReturn("/path/to/new/content");
+
+		when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+	}
+
+	private Content buildTestContent() {
+		Content content = new Content<>();
+		content.getHeader().setContentType("application/json");
+		return content;
+	}
+
+	@Test
+	public void loadContent() throws Exception {
+		mockMvc.perform(get(REQUEST))//
+				.andExpect(status().isOk())//
+				.andExpect(content().contentType("application/hal+json"));
+
+		verify(service).resolve(eq(PATH_TO_CONTENT));
+		verify(service).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+	}
+
+	@Test
+	public void rejectInvalidFieldsBeforeReading() throws Exception {
+		when(service.compileFields(anyListOf(String.class)))
+				.thenThrow(new UnprocessableEntityException(UnprocessableEntityException.MessageCode.INVALID_FIELDS));
+
+		mockMvc.perform(get(REQUEST + "?fields=invalid")).andExpect(status().isUnprocessableEntity());
+
+		verify(service, never()).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void sendValidatorsOfVersionRead() throws Exception {
+		MetaData written = new MetaData();
+		written.setVersion(2);
+		ContentHandle current = new ContentHandle(PATH_TO_CONTENT, attributes, written,
+				buildTestContent().getHeader());
+		doAnswer(invocation -> {
+			((Consumer<ContentHandle>) invocation.getArguments()[2]).accept(current);
+			return buildTestContent();
+		}).when(service).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+
+		mockMvc.perform(get(REQUEST)).andExpect(status().isOk())
+				.andExpect(header().string("ETag", current.getETag("application/hal+json")));
+	}
+
+	@Test
+	public void loadContentNotModified() throws Exception {
+		String eTag = buildHandle(buildTestContent().getHeader()).getETag("application/hal+json");
+
+		mockMvc.perform(get(REQUEST).header("If-None-Match", eTag))//
+				.andExpect(status().isNotModified())//
+				.andExpect(header().string("ETag", eTag));
+
+		verify(service, never()).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+	}
+
+	@Test
+	public void loadContentModifiedSince() throws Exception {
+		mockMvc.perform(get(REQUEST).header("If-Modified-Since", LAST_MODIFIED - 60000))//
+				.andExpect(status().isOk())//
+				.andExpect(header().string("ETag", notNullValue()))//
+				.andExpect(header().dateValue("Last-Modified", LAST_MODIFIED));
+
+		verify(service).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+	}
+
+	@Test
+	public void loadContentDataNotModified() throws Exception {
+		when(service.resolve(anyString())).thenReturn(buildHandle(buildLeafHeader("images/jpeg")));
+
+		mockMvc.perform(get(REQUEST).param("projection", "content").header("If-Modified-Since", LAST_MODIFIED))
+				.andExpect(status().isNotModified());
+
+		verify(service, never()).loadContentData(any(ContentHandle.class), any(Consumer.class));
+	}
+
+	@Test
+	public void queryContent() throws Exception {
+		when(service.queryContent(any(ContentHandle.class), anyString(), any(Paging.class)))
+				.thenReturn(buildTestContent());
+
+		mockMvc.perform(get(REQUEST).param("query", "tag:red")).andExpect(status().isOk());
+
+		verify(service).queryContent(any(ContentHandle.class), eq("tag:red"), any(Paging.class));
+		verify(service, never()).readContent(any(ContentHandle.class), any(Paging.class), any(Consumer.class));
+	}
+
+	@Test
+	public void loadMetaData() throws Exception {
+		when(service.loadMetaData(anyString())).thenReturn(new MetaData());
+
+		mockMvc.perform(get(REQUEST).param("projection", "metadata")).andExpect(status().isOk());
+
+		verify(service).loadMetaData(eq(PATH_TO_CONTENT));
+	}
+
+	@Test
+	public void loadContentData() throws Exception {
+		when(service.loadContentData(any(ContentHandle.class), any(Consumer.class)))
+				.thenAnswer(readVersion(new ByteArrayInputStream("test data".getBytes())));
+		when(service.resolve(anyString())).thenReturn(buildHandle(buildLeafHeader("images/jpeg")));
+
+		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isOk()) //
+				.andExpect(content().bytes("test data".getBytes())) //
+				.andExpect(content().contentType("images/jpeg"));
+
+		verify(service).loadContentData(any(ContentHandle.class), any(Consumer.class));
+		verify(service).resolve(eq(PATH_TO_CONTENT));
+	}
+
+	@Test
+	public void loadCompressedContentData() throws Exception {
+		when(service.loadStoredContentData(any(ContentHandle.class), any(Consumer.class)))
+				.thenAnswer(readVersion(new ByteArrayInputStream("gzip data".getBytes())));
+		when(service.resolve(anyString())).thenReturn(buildCompressedHandle());
+		when(attributes.size()).thenReturn(9L);
+
+		mockMvc.perform(get(REQUEST).param("projection", "content").header("Accept-Encoding", "gzip, deflate"))
+				.andExpect(status().isOk()) //
+				.andExpect(content().bytes("gzip data".getBytes())) //
+				.andExpect(header().string("Content-Encoding", "gzip")) //
+				.andExpect(header().string("Vary", "Accept-Encoding"));
+
+		verify(service, never()).loadContentData(any(ContentHandle.class), any(Consumer.class));
+	}
+
+	@Test
+	public void loadDecodedContentData() throws Exception {
+		when(service.loadContentData(any(ContentHandle.class), any(Consumer.class)))
+				.thenAnswer(readVersion(new ByteArrayInputStream("test data".getBytes())));
+		when(service.resolve(anyString())).thenReturn(buildCompressedHandle());
+
+		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isOk()) //
+				.andExpect(content().bytes("test data".getBytes())) //
+				.andExpect(header().doesNotExist("Content-Encoding")) //
+				.andExpect(header().string("Vary", "Accept-Encoding"));
+
+		verify(service, never()).loadStoredContentData(any(ContentHandle.class), any(Consumer.class));
+	}
+
+	@Test
+	public void loadContentDataOfDirectory() throws Exception {
+		when(service.resolve(anyString())).thenReturn(buildHandle(buildNodeHeader()));
+
+		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isUnprocessableEntity());
+	}
+
+	@Test
+	public void missingContentType() throws Exception {
+		when(service.loadContentData(any(ContentHandle.class), any(Consumer.class)))
+				.thenAnswer(readVersion(new ByteArrayInputStream("test data".getBytes())));
+		when(service.resolve(anyString())).thenReturn(buildHandle(buildLeafHeader(null)));
+
+		mockMvc.perform(get(REQUEST).param("projection", "content")).andExpect(status().isOk()) //
+				.andExpect(content().contentType("application/octet-stream"));
+	}
+
+	@Test
+	public void createFolder() throws Exception {
+		mockMvc.perform(post(REQUEST).contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content(String.format(TestUtils.loadTextFile("requests/createFolder.json"), "new_folder")))
+				.andExpect(status().isCreated())
+				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
+
+		verify(service).createContent(eq(PATH_TO_CONTENT), contentCaptor.capture());
+		assertThat(contentCaptor.getValue().getHeader().getName()).isEqualTo("new_folder");
+	}
+
+	@Test
+	public void addJsonContent() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1", "",
+				"{\"headline\":\"Best\"}");
+
+		mockMvc.perform(post(REQUEST).contentType(MediaType.APPLICATION_JSON_UTF8).content(content))
+				.andExpect(status().isCreated())
+				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
+
+		verify(service).createContent(eq("/path/to/content.file"), any(Content.class));
+	}
+
+	@Test
+	public void addBinaryContent() throws Exception {
+		InputStream testStream = TestUtils.loadFile("requests/testimg.jpeg");
+
+		mockMvc.perform(
+				fileUpload(REQUEST).file(new MockMultipartFile("file", "testimg.jpeg", "images/jpeg", testStream)))//
+				.andExpect(status().isCreated())
+				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
+
+		verify(service).createContent(eq("/path/to/content.file"), contentCaptor.capture());
+		ContentHeader header = contentCaptor.getValue().getHeader();
+		assertThat(header.getContentType().isPresent()).isTrue();
+		assertThat(header.getContentType().get()).isEqualTo("images/jpeg");
+		assertThat(header.getName()).isEqualTo("testimg.jpeg");
+	}
+
+	@Test
+	public void addStreamedContent() throws Exception {
+		mockMvc.perform(post(REQUEST).param("name", "test.bin").contentType(MediaType.IMAGE_PNG).content("test data"))
+				.andExpect(status().isCreated())
+				.andExpect(header().stringValues("Location", "http://localhost/path/to/new/content"));
+
+		verify(service).createContent(eq(PATH_TO_CONTENT), contentCaptor.capture());
+		ContentHeader header = contentCaptor.getValue().getHeader();
+		assertThat(header.getName()).isEqualTo("test.bin");
+		assertThat(header.getType()).isEqualTo(ContentItemType.LEAF);
+		assertThat(header.getContentType().get()).isEqualTo("image/png");
+		assertThat(contentCaptor.getValue().getContent()).isInstanceOf(InputStream.class);
+	}
+
+	@Test
+	public void changeStreamedContent() throws Exception {
+		when(service.writeContent(anyString(), any(Content.class), any(IfMatch.class))).thenReturn(PATH_TO_CONTENT);
+		ContentHandle handle = buildHandle(buildLeafHeader("application/octet-stream"));
+		when(service.resolve(anyString())).thenReturn(handle);
+		String eTag = handle.getETag("application/octet-stream");
+
+		mockMvc.perform(put(REQUEST).contentType(MediaType.APPLICATION_OCTET_STREAM).content("test data"))
+				.andExpect(status().isNoContent())//
+				.andExpect(header().string("ETag", eTag));
+
+		verify(service).writeContent(eq(PATH_TO_CONTENT), contentCaptor.capture(), any(IfMatch.class));
+		ContentHeader header = contentCaptor.getValue().getHeader();
+		assertThat(header.getName()).isEqualTo("content.file");
+		assertThat(header.getContentType().get()).isEqualTo("application/octet-stream");
+	}
+
+	@Test
+	public void applyBulk() throws Exception {
+		mockMvc.perform(post(REQUEST).contentType(BulkService.NDJSON).content("{\"op\":\"delete\",\"path\":\"a\"}"))
+				.andExpect(status().isOk());
+
+		verify(bulkService).apply(eq(PATH_TO_CONTENT), any(InputStream.class), any(OutputStream.class));
+	}
+
+	@Test
+	public void patchContent() throws Exception {
+		String eTag = buildHandle(buildTestContent().getHeader()).getETag("application/hal+json");
+
+		mockMvc.perform(patch(REQUEST).contentType(JsonPatch.JSON_PATCH).header("If-Match", eTag)
+				.content("[{\"op\":\"remove\",\"path\":\"/a\"}]"))//
+				.andExpect(status().isNoContent())//
+				.andExpect(header().string("ETag", eTag));
+
+		verify(service).patchContent(any(ContentHandle.class), any(JsonNode.class), eq(false), any(IfMatch.class));
+	}
+
+	@Test
+	public void mergePatchContent() throws Exception {
+		mockMvc.perform(patch(REQUEST).contentType(JsonPatch.MERGE_PATCH).content("{\"a\":null}"))
+				.andExpect(status().isNoContent());
+
+		verify(service).patchContent(any(ContentHandle.class), any(JsonNode.class), eq(true), any(IfMatch.class));
+	}
+
+	@Test
+	public void patchChangedContent() throws Exception {
+		mockMvc.perform(patch(REQUEST).contentType(JsonPatch.MERGE_PATCH).header("If-Match", "\"outdated\"")
+				.content("{\"a\":null}"))//
+				.andExpect(status().isPreconditionFailed());
+
+		verify(service, never()).patchContent(any(ContentHandle.class), any(JsonNode.class), anyBoolean(),
+				any(IfMatch.class));
+	}
+
+	@Test
+	public void changeMetaData() throws Exception {
+		mockMvc.perform(put(REQUEST).param("projection", "metadata")//
+				.contentType(MediaType.APPLICATION_JSON_UTF8)//
+				.content("[" + buildMetaDatumJson("toast", "salami") + "," + buildMetaDatumJson("pizza", "hawaii")
+						+ "]"))
+				.andExpect(status().isNoContent());
+
+		verify(service).writeMetaData(eq(PATH_TO_CONTENT), anyCollectionOf(MetaDatum.class), any(IfMatch.class));
+	}
+
+	@Test
+	public void changeMetaDataOfBinaryContent() throws Exception {
+		ContentHandle handle = buildHandle(buildLeafHeader("images/jpeg"));
+		when(service.resolve(anyString())).thenReturn(handle);
+
+		mockMvc.perform(put(REQUEST).param("projection", "metadata")//
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content("[" + buildMetaDatumJson("toast", "salami") + "]"))
+				.andExpect(status().isNoContent())//
+				.andExpect(header().string("ETag", handle.getETag("images/jpeg")));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void changeJsonContent() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json", "",
+				"{\"headline\":\"Much better\"}");
+
+		mockMvc.perform(put(REQUEST)//
+				.contentType(MediaType.APPLICATION_JSON_UTF8).content(content))//
+				.andExpect(jsonPath("$.header.name", is("test1.json"))).andExpect(status().isOk());
+
+		verify(service).writeContent(eq(PATH_TO_CONTENT), contentCaptor.capture(), any(IfMatch.class));
+		assertThat(contentCaptor.getValue().getContent()).isInstanceOf(Map.class);
+		assertThat((Map<String, Object>) contentCaptor.getValue().getContent()).containsEntry("headline",
+				"Much better");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void changeHalJsonContent() throws Exception {
+		String content = String.format(TestUtils.loadTextFile("requests/jsonContent.json"), "test1.json", "",
+				"{\"headline\":\"Much better\"}");
+
+		mockMvc.perform(put(REQUEST)//
+				.contentType("application/hal+json").content(content))//
+				.andExpect(status().isOk());
+
+		verify(service).writeContent(eq(PATH_TO_CONTENT), contentCaptor.capture(), any(IfMatch.class));
+		assertThat((Map<String, Object>) contentCaptor.getValue().getContent()).containsEntry("headline",
+				"Much better");
+	}
+
+	@Test
+	public void rejectStreamedJsonContent() throws Exception {
+		mockMvc.perform(post(REQUEST).param("name", "test.json").contentType("application/hal+json").content("{}"))
+				.andExpect(status().isUnsupportedMediaType());
+
+		verify(service, never()).createContent(anyString(), any(Content.class));
+	}
+
+	/**
+	 * Passes the handle to the consumer like the service does, as the version read.
+	 */
+	@SuppressWarnings("unchecked")
+	private Answer<Object> readVersion(Object result) {
+		return invocation -> {
+			Object[] arguments = invocation.getArguments();
+			((Consumer<ContentHandle>) arguments[arguments.length - 1]).accept((ContentHandle) arguments[0]);
+			return result;
+		};
+	}
+
+	private ContentHandle buildHandle(ContentHeader header) {
+		return new ContentHandle(PATH_TO_CONTENT, attributes, new MetaData(), header);
+	}
+
+	private ContentHandle buildCompressedHandle() {
+		MetaData metaData = new MetaData();
+		metaData.setContentEncoding(ContentEncodingService.GZIP);
+		return new ContentHandle(PATH_TO_CONTENT, attributes, metaData, buildLeafHeader("text/plain"));
+	}
+
+	private ContentHeader buildLeafHeader(String contentType) {
+		ContentHeader header = new ContentHeader();
+		if (contentType != null) {
+			header.setContentType(contentType);
+		}
+		header.setType(ContentItemType.LEAF);
+		return header;
+	}
+
+	private ContentHeader buildNodeHeader() {
+		ContentHeader header = new ContentHeader();
+		header.setType(ContentItemType.NODE);
+		return header;
+	}
+}
@@ -0,0 +1,110 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.tobiasbruns.content.storage.StorageBackend.DataWriter;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class ContentEncodingServiceTest {
+
+	private ContentEncodingService service = new ContentEncodingService();
+
+	@Before
+	public void initTest() {
+		ReflectionTestUtils.setField(service, "compressedContentTypes",
+				new String[] { "application/json", " text/*" });
+		service.initBean();
+	}
+
+	@Test
+	public void selectEncoding() {
+		assertThat(service.selectEncoding("application/json")).isEqualTo(ContentEncodingService.GZIP);
+		assertThat(service.selectEncoding("text/plain;charset=UTF-8")).isEqualTo(ContentEncodingService.GZIP);
+		assertThat(service.selectEncoding("image/jpeg")).isNull();
+		assertThat(service.selectEncoding(null)).isNull();
+	}
+
+	@Test
+	public void selectNoEncodingForMalformedType() {
+		assertThat(service.selectEncoding("text")).isNull();
+		assertThat(service.selectEncoding("text/plain;charset=unknown")).isNull();
+	}
+
+	@Test
+	public void encodeAndDecode() throws IOException {
+		String text = "compressible compressible compressible compressible";
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+
+		DataWriter writer = service.encode(ContentEncodingService.GZIP,
+				out -> out.write(text.getBytes(StandardCharsets.UTF_8)));
+		writer.write(stored);
+
+		assertThat(stored.size()).isLessThan(text.length());
+		try (InputStream in = service.decode(ContentEncodingService.GZIP,
+				new ByteArrayInputStream(stored.toByteArray()))) {
+			assertThat(IOUtils.toString(in, StandardCharsets.UTF_8)).isEqualTo(text);
+		}
+	}
+
+	@Test
+	public void reportDecodedSize() throws IOException {
+		String text = "compressible compressible compressible compressible";
+		AtomicLong decodedSize = new AtomicLong(-1);
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+
+		service.encode(ContentEncodingService.GZIP, out -> out.write(text.getBytes(StandardCharsets.UTF_8)),
+				decodedSize::set).write(stored);
+
+		assertThat(decodedSize.get()).isEqualTo(text.length());
+	}
+
+	@Test
+	public void finishEvenIfWriterCloses() throws IOException {
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+
+		service.encode(ContentEncodingService.GZIP, out -> {
+			out.write("data".getBytes(StandardCharsets.UTF_8));
+			out.close();
+		}).write(stored);
+
+		try (InputStream in = service.decode(ContentEncodingService.GZIP,
+				new ByteArrayInputStream(stored.toByteArray()))) {
+			assertThat(IOUtils.toString(in, StandardCharsets.UTF_8)).isEqualTo("data");
+		}
+	}
+
+	@Test
+	public void withoutEncoding() {
+		DataWriter writer = out -> out.write(1);
+		InputStream in = new ByteArrayInputStream(new byte[0]);
+
+		assertThat(service.encode(null, writer)).isSameAs(writer);
+		assertThat(service.decode(null, in)).isSameAs(in);
+	}
+
+	@Test
+	public void isAccepted() {
+		assertThat(ContentEncodingService.isAccepted("gzip, deflate", "gzip")).isTrue();
+		assertThat(ContentEncodingService.isAccepted("deflate, GZIP;q=0.5", "gzip")).isTrue();
+		assertThat(ContentEncodingService.isAccepted("*", "gzip")).isTrue();
+		assertThat(ContentEncodingService.isAccepted("gzip;q=0, *", "gzip")).isFalse();
+		assertThat(ContentEncodingService.isAccepted("identity", "gzip")).isFalse();
+		assertThat(ContentEncodingService.isAccepted(null, "gzip")).isFalse();
+	}
+}
@@ -0,0 +1,58 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class ContentHeaderServiceTest {
+
+	private ContentHeaderService service = new ContentHeaderService();
+
+	private BasicFileAttributes attributes = mock(BasicFileAttributes.class);
+
+	@Before
+	public void initTest() {
+		when(attributes.isRegularFile()).thenReturn(true);
+		when(attributes.size()).thenReturn(42L);
+	}
+
+	@Test
+	public void getHeaderWithoutMetaData() {
+		ContentHeader header = service.getContentHeader("a.txt", attributes);
+
+		assertThat(header.getName()).isEqualTo("a.txt");
+		assertThat(header.getSize()).isEqualTo(Optional.of(42L));
+		assertThat(header.getContentType().isPresent()).isFalse();
+	}
+
+	@Test
+	public void getHeaderWithDecodedSize() {
+		MetaData metaData = new MetaData();
+		metaData.setContentType("text/plain");
+		metaData.setDecodedSize(100L);
+
+		ContentHeader header = service.getContentHeader("a.txt", attributes, metaData);
+
+		assertThat(header.getSize()).isEqualTo(Optional.of(100L));
+		assertThat(header.getContentType()).isEqualTo(Optional.of("text/plain"));
+	}
+
+	@Test
+	public void requireContentType() {
+		assertThatThrownBy(() -> service.getContentHeader("a.txt", attributes, new MetaData()))
+				.isInstanceOf(UnprocessableEntityException.class);
+	}
+}
@@ -20,12 +20,19 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
 /**
@@ -38,15 +45,27 @@ public class CreateContentTest {
 
 	@InjectMocks
 	private StorageService service;
+	@Spy
+	private PathLocks pathLocks = new PathLocks(16);
 	@Mock
 	private ContentService contentService;
 	@Mock
 	private MetaDataService metaDataService;
+	@Mock
+	private StorageBackend backend;
+
+	@Captor
+	private ArgumentCaptor<Map<String, MetaData>> metaDataCaptor;
 
 	@Before
 	public void initTest() {
-		when(contentService.createBinaryContent(anyString(), anyString(), any(InputStream.class)))
-				.thenReturn("new/Path/content.json");
+		when(metaDataService.loadOwnMetaData(anyString(), anyBoolean())).thenReturn(new MetaData());
+		when(contentService.createBinaryContent(anyString(), anyString(), any(InputStream.class),
+				any(MetaData.class))).thenReturn("new/Path/content.json");
+		doAnswer(invocation -> {
+			((Runnable) invocation.getArguments()[0]).run();
+			return null;
+		}).when(backend).runBatch(any(Runnable.class));
 	}
 
 	@Test
@@ -58,9 +77,38 @@ public class CreateContentTest {
 
 		String newPath = service.createContent("/path/to/content", content);
 
-		verify(contentService).createBinaryContent(eq("/path/to/content"), eq("image.jpeg"), any(InputStream.class));
+		verify(contentService).createBinaryContent(eq("/path/to/content"), eq("image.jpeg"), any(InputStream.class),
+				any(MetaData.class));
 		verify(metaDataService).writeMetaData(eq("new/Path/content.json"), any(MetaData.class));
 		assertThat(newPath).isNotNull().isEqualTo("new/Path/content.json");
 
 	}
+
+	@Test
+	public void createContentInBatch() {
+		List<BulkResult> results = service.applyBatch("/folder",
+				Arrays.asList(buildCreateOperation("a.json"), buildCreateOperation("../b.json"),
+						buildCreateOperation("sub/c.json")),
+				10);
+
+		verify(contentService).createJsonContent(eq("/folder"), eq("a.json"), anyMapOf(String.class, Object.class),
+				any(MetaData.class));
+		verify(contentService).createJsonContent(eq("/folder/sub"), eq("c.json"),
+				anyMapOf(String.class, Object.class), any(MetaData.class));
+		verify(metaDataService, never()).writeMetaData(anyString(), any(MetaData.class));
+		verify(metaDataService).writeMetaData(metaDataCaptor.capture());
+		assertThat(metaDataCaptor.getValue()).containsOnlyKeys("/folder/a.json", "/folder/sub/c.json");
+		assertThat(results).extracting(BulkResult::getIndex).containsExactly(10, 11, 12);
+		assertThat(results).extracting(BulkResult::getStatus).containsExactly(201, 422, 201);
+	}
+
+	private BulkOperation buildCreateOperation(String path) {
+		Content<Map<String, Object>> content = new Content<>();
+		content.setContent(Collections.singletonMap("test", "data"));
+		BulkOperation operation = new BulkOperation();
+		operation.setOp(BulkOperation.Type.CREATE);
+		operation.setPath(path);
+		operation.setContent(content);
+		return operation;
+	}
 }
@@ -1,129 +1,322 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import static org.assertj.core.api.Assertions.assertThat;
-
-import java.io.File;
-import java.io.IOException;
-
-import org.apache.tomcat.util.http.fileupload.FileUtils;
-import org.junit.After;
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
-import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.test.util.ReflectionTestUtils;
-
-import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
-import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-@RunWith(MockitoJUnitRunner.class)
-public class FileSystemServiceTest {
-
-   @InjectMocks
-   private FileSystemService service;
-
-   private String testRootDir = "testRootDir";
-   private File testRoot = new File(testRootDir);
-
-   @Before
-   public void initTest() {
-      testRoot.delete();
-      testRoot.mkdir();
-      setRootDir(testRootDir);
-   }
-
-   @After
-   public void cleanup() throws IOException {
-      FileUtils.deleteDirectory(testRoot);
-   }
-
-   @Test
-   public void createRootDir() {
-      String rootDir = testRootDir + "/test/dir";
-      setRootDir(rootDir);
-
-      assertThat(new File(rootDir).exists()).isTrue();
-   }
-
-   @Test
-   public void getFile() throws IOException {
-      String fileName = "testfile";
-      File testFile = new File(testRoot, fileName);
-      testFile.createNewFile();
-
-      File loadedFile = service.getFile(fileName);
-
-      assertThat(loadedFile.exists()).isTrue();
-      assertThat(loadedFile).isEqualTo(testFile);
-   }
-
-   @Test(expected = ResourceNotFoundException.class)
-   public void getFileNotExists() {
-      service.getFile("not_exists.txt");
-   }
-
-   @Test
-   public void createMissingFile() {
-      File file = service.getOrCreateFile("not_exists.txt");
-
-      assertThat(file).isNotNull().exists();
-   }
-
-   @Test
-   public void getDirContent() throws IOException {
-      String dirName = "testDir";
-      File testDir = new File(testRoot, dirName);
-      testDir.mkdir();
-      String fileName = "testFile";
-      File testFile = new File(testDir, fileName);
-      testFile.createNewFile();
-
-      File[] dirContent = service.getDirContent(dirName);
-
-      assertThat(dirContent).hasSize(1).contains(testFile);
-   }
-
-   @Test(expected = UnprocessableEntityException.class)
-   public void getDirContentNotADir() throws IOException {
-      String fileName = "testfile";
-      File testFile = new File(testRoot, fileName);
-      testFile.createNewFile();
-
-      service.getDirContent(fileName);
-   }
-
-   @Test
-   public void renameFile() {
-      service.getOrCreateFile("/renameTestFile");
-
-      String newPath = service.renameFile("/renameTestFile", "newName");
-
-      assertThat(newPath).isEqualTo("/newName");
-   }
-
-   private void setRootDir(String rootDir) {
-      ReflectionTestUtils.setField(service, "storageRootDirectory", rootDir);
-      service.initBean();
-   }
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.tobiasbruns.content.storage.FileSystemService.Layout;
+import de.tobiasbruns.content.storage.FileSystemService.SyncPolicy;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FileSystemServiceTest {
+
+   @InjectMocks
+   private FileSystemService service;
+
+   private String testRootDir = "testRootDir";
+   private File testRoot = new File(testRootDir);
+
+   @Before
+   public void initTest() {
+      testRoot.delete();
+      testRoot.mkdir();
+      setRootDir(testRootDir);
+   }
+
+   @After
+   public void cleanup() throws IOException {
+      FileUtils.deleteDirectory(testRoot);
+   }
+
+   @Test
+   public void createRootDir() {
+      String rootDir = testRootDir + "/test/dir";
+      setRootDir(rootDir);
+
+      assertThat(new File(rootDir).exists()).isTrue();
+   }
+
+   @Test
+   public void getFile() throws IOException {
+      String fileName = "testfile";
+      File testFile = new File(testRoot, fileName);
+      testFile.createNewFile();
+
+      File loadedFile = service.getFile(fileName);
+
+      assertThat(loadedFile.exists()).isTrue();
+      assertThat(loadedFile).isEqualTo(testFile);
+   }
+
+   @Test(expected = ResourceNotFoundException.class)
+   public void getFileNotExists() {
+      service.getFile("not_exists.txt");
+   }
+
+   @Test
+   public void getAttributes() throws IOException {
+      File testFile = new File(testRoot, "testfile");
+      Files.write(testFile.toPath(), "content".getBytes());
+
+      BasicFileAttributes attributes = service.getAttributes("testfile");
+
+      assertThat(attributes.isRegularFile()).isTrue();
+      assertThat(attributes.size()).isEqualTo(7);
+   }
+
+   @Test(expected = ResourceNotFoundException.class)
+   public void getAttributesNotExists() {
+      service.getAttributes("not_exists.txt");
+   }
+
+   @Test
+   public void createMissingFile() {
+      File file = service.getOrCreateFile("not_exists.txt");
+
+      assertThat(file).isNotNull().exists();
+   }
+
+   @Test
+   public void writeFile() throws IOException {
+      service.writeFile("written.txt", out -> out.write("test data".getBytes()));
+
+      assertThat(new File(testRoot, "written.txt")).hasContent("test data");
+      assertThat(testRoot.list()).containsOnly("written.txt");
+   }
+
+   @Test
+   public void replaceFile() throws IOException {
+      ReflectionTestUtils.setField(service, "syncPolicy", SyncPolicy.FILE_AND_DIRECTORY);
+      service.writeFile("written.txt", out -> out.write("old data".getBytes()));
+
+      service.writeFile("written.txt", out -> out.write("new data".getBytes()));
+
+      assertThat(new File(testRoot, "written.txt")).hasContent("new data");
+      assertThat(testRoot.list()).containsOnly("written.txt");
+   }
+
+   @Test
+   public void keepFileOnFailedWrite() throws IOException {
+      service.writeFile("written.txt", out -> out.write("old data".getBytes()));
+
+      try {
+         service.writeFile("written.txt", out -> {
+            out.write("new".getBytes());
+            throw new IOException("broken upload");
+         });
+      } catch (RuntimeException e) {
+         // expected
+      }
+
+      assertThat(new File(testRoot, "written.txt")).hasContent("old data");
+      assertThat(testRoot.list()).containsOnly("written.txt");
+   }
+
+   @Test(expected = ResourceNotFoundException.class)
+   public void writeFileWithoutDir() {
+      service.writeFile("missing/written.txt", out -> out.write(1));
+   }
+
+   @Test
+   public void shardedLayout() {
+      ReflectionTestUtils.setField(service, "layout", Layout.SHARDED);
+      service.createDirectory("/", "folder");
+      service.writeFile("/folder/content.txt", out -> out.write("test data".getBytes()));
+
+      File file = service.getFile("/folder/content.txt");
+
+      assertThat(file).hasContent("test data");
+      assertThat(testRoot.list()).doesNotContain("folder");
+      assertThat(file.getParentFile().getParentFile().getParentFile()).isEqualTo(service.getFile("/folder"));
+   }
+
+   @Test
+   public void touchShardedFolder() {
+      ReflectionTestUtils.setField(service, "layout", Layout.SHARDED);
+      service.createDirectory("/", "folder");
+      service.writeFile("/folder/content.txt", out -> out.write(1));
+      FileTime created = service.getAttributes("/folder").lastModifiedTime();
+
+      service.writeFile("/folder/content.txt", out -> out.write(2));
+      FileTime replaced = service.getAttributes("/folder").lastModifiedTime();
+      service.delete("/folder/content.txt");
+
+      assertThat(replaced).isGreaterThan(created);
+      assertThat(service.getAttributes("/folder").lastModifiedTime()).isGreaterThan(replaced);
+   }
+
+   @Test
+   public void listShardedDirectory() {
+      ReflectionTestUtils.setField(service, "layout", Layout.SHARDED);
+      for (String name : new String[] { "c", "a", "d", "b" }) {
+         service.writeFile(name, out -> out.write(1));
+      }
+
+      assertThat(service.listDirectory("/", null, 3)).containsExactly("a", "b", "c");
+      assertThat(service.listDirectory("/", "c", 3)).containsExactly("d");
+   }
+
+   @Test
+   public void renameShardedFile() {
+      ReflectionTestUtils.setField(service, "layout", Layout.SHARDED);
+      service.writeFile("/renameTestFile", out -> out.write(1));
+
+      String newPath = service.renameFile("/renameTestFile", "newName");
+
+      assertThat(newPath).isEqualTo("/newName");
+      assertThat(service.getFile(newPath)).exists();
+   }
+
+   @Test
+   public void getDirContent() throws IOException {
+      String dirName = "testDir";
+      File testDir = new File(testRoot, dirName);
+      testDir.mkdir();
+      String fileName = "testFile";
+      File testFile = new File(testDir, fileName);
+      testFile.createNewFile();
+
+      File[] dirContent = service.getDirContent(dirName);
+
+      assertThat(dirContent).hasSize(1).contains(testFile);
+   }
+
+   @Test
+   public void listDirectory() throws IOException {
+      for (String name : new String[] { "c", "a", "d", "b" }) {
+         new File(testRoot, name).createNewFile();
+      }
+
+      assertThat(service.listDirectory("/", null, 2)).containsExactly("a", "b");
+      assertThat(service.listDirectory("/", "b", 3)).containsExactly("c", "d");
+   }
+
+   @Test
+   public void listDirectoryFiltered() throws IOException {
+      for (String name : new String[] { "a", "a.metadata.json", ".metadata.json", ".b.1234.tmp", "b" }) {
+         new File(testRoot, name).createNewFile();
+      }
+
+      assertThat(service.listDirectory("/", null, 10, name -> !MetaDataService.isMetaDataFile(name)))
+            .containsExactly("a", "b");
+   }
+
+   @Test(expected = UnprocessableEntityException.class)
+   public void listDirectoryNotADir() throws IOException {
+      new File(testRoot, "testfile").createNewFile();
+
+      service.listDirectory("testfile", null, 1);
+   }
+
+   @Test(expected = UnprocessableEntityException.class)
+   public void getDirContentNotADir() throws IOException {
+      String fileName = "testfile";
+      File testFile = new File(testRoot, fileName);
+      testFile.createNewFile();
+
+      service.getDirContent(fileName);
+   }
+
+   @Test
+   public void renameFile() {
+      service.getOrCreateFile("/renameTestFile");
+
+      String newPath = service.renameFile("/renameTestFile", "newName");
+
+      assertThat(newPath).isEqualTo("/newName");
+   }
+
+   @Test
+   public void renameFileNotOntoExistingFile() {
+      service.writeFile("/renameTestFile", out -> out.write(1));
+      service.writeFile("/existing", out -> out.write(2));
+
+      assertThatThrownBy(() -> service.renameFile("/renameTestFile", "existing"))
+            .isInstanceOf(UnprocessableEntityException.class);
+      assertThat(service.getFile("/renameTestFile")).exists();
+      assertThat(service.getFile("/existing")).hasBinaryContent(new byte[] { 2 });
+   }
+
+   @Test(expected = ResourceNotFoundException.class)
+   public void renameMissingFile() {
+      service.renameFile("/missing", "newName");
+   }
+
+   @Test
+   public void readMappedFile() throws IOException {
+      ReflectionTestUtils.setField(service, "mmapEnabled", true);
+      ReflectionTestUtils.setField(service, "mmapMaxFileSize", 1024L);
+      ReflectionTestUtils.setField(service, "mmapCapacity", 4096L);
+      setRootDir(testRootDir);
+      service.writeFile("/mapped", out -> out.write("test data".getBytes()));
+
+      try (InputStream in = service.openStream("/mapped")) {
+         assertThat(in).isNotInstanceOf(FileContentInputStream.class);
+         assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("test data");
+      }
+      service.writeFile("/mapped", out -> out.write("new data".getBytes()));
+      try (InputStream in = service.openStream("/mapped")) {
+         assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("new data");
+      }
+   }
+
+   @Test
+   public void readMetaDataUnmapped() throws IOException {
+      ReflectionTestUtils.setField(service, "mmapEnabled", true);
+      ReflectionTestUtils.setField(service, "mmapMaxFileSize", 1024L);
+      ReflectionTestUtils.setField(service, "mmapCapacity", 4096L);
+      setRootDir(testRootDir);
+      service.writeFile("/content.metadata.json", out -> out.write("[]".getBytes()));
+      service.writeFile("/.metadata.index", out -> out.write("{}".getBytes()));
+
+      try (InputStream in = service.openStream("/content.metadata.json")) {
+         assertThat(in).isInstanceOf(FileContentInputStream.class);
+      }
+      try (InputStream in = service.openStream("/.metadata.index")) {
+         assertThat(in).isInstanceOf(FileContentInputStream.class);
+      }
+   }
+
+   private void setRootDir(String rootDir) {
+      ReflectionTestUtils.setField(service, "storageRootDirectory", rootDir);
+      service.initBean();
+   }
+}
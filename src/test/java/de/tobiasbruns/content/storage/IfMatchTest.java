@@ -0,0 +1,58 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import de.tobiasbruns.content.storage.exception.PreconditionFailedException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class IfMatchTest {
+
+	@Test
+	public void anyVersionWithoutHeader() {
+		IfMatch.parse(null).check(42, 0);
+		IfMatch.parse(" * ").check(42, 0);
+	}
+
+	@Test
+	public void matchesVersionOfEntityTag() {
+		IfMatch.parse("\"3-abcdef\"").check(3, 0);
+	}
+
+	@Test
+	public void matchesAnyListedVersion() {
+		IfMatch ifMatch = IfMatch.parse("\"1-abc\", \"4-def\"");
+
+		ifMatch.check(1, 0);
+		ifMatch.check(4, 0);
+	}
+
+	@Test
+	public void matchesVersionOfCreatedContent() {
+		IfMatch.parse("\"3.12345-abcdef\"").check(3, 12345);
+		IfMatch.ofVersion(3).check(3, 12345);
+	}
+
+	@Test
+	public void failsOnContentCreatedAgain() {
+		assertThatThrownBy(() -> IfMatch.parse("\"1.12345-abcdef\"").check(1, 23456))
+				.isInstanceOf(PreconditionFailedException.class);
+	}
+
+	@Test
+	public void failsOnOtherVersion() {
+		assertThatThrownBy(() -> IfMatch.parse("\"3-abcdef\"").check(4, 0))
+				.isInstanceOf(PreconditionFailedException.class);
+	}
+
+	@Test
+	public void failsOnForeignAndWeakEntityTags() {
+		assertThatThrownBy(() -> IfMatch.parse("\"outdated\", W/\"4-abc\"").check(4, 0))
+				.isInstanceOf(PreconditionFailedException.class);
+	}
+}
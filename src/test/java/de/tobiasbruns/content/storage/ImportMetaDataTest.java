@@ -0,0 +1,85 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ImportMetaDataTest {
+
+	@InjectMocks
+	private MetaDataService service;
+	@Mock
+	private StorageBackend backend;
+	@Mock
+	private MetaDataIndex index;
+	@Captor
+	private ArgumentCaptor<Map<String, byte[]>> valuesCaptor;
+	@Mock
+	private BasicFileAttributes folderAttributes;
+	@Mock
+	private BasicFileAttributes fileAttributes;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void initTest() {
+		when(folderAttributes.isDirectory()).thenReturn(true);
+		when(backend.getAttributes("/folder")).thenReturn(folderAttributes);
+		when(backend.getAttributes("/test.txt")).thenReturn(fileAttributes);
+		when(backend.listDirectory(eq("/"), isNull(String.class), anyInt(), any(Predicate.class)))
+				.thenReturn(Arrays.asList("folder", "test.txt", "test.txt.metadata.json"));
+		when(backend.listDirectory(eq("/folder"), isNull(String.class), anyInt(), any(Predicate.class)))
+				.thenReturn(Arrays.asList(".metadata.json"));
+		when(backend.openStream(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(
+				invocation.getArgumentAt(0, String.class).getBytes()));
+	}
+
+	@Test
+	public void importMetaDataFilesIntoCreatedIndex() {
+		when(index.isCreated()).thenReturn(true);
+
+		service.initBean();
+
+		verify(index, times(2)).putAll(valuesCaptor.capture());
+		assertThat(valuesCaptor.getAllValues().get(0)).containsOnlyKeys("/test.txt");
+		assertThat(valuesCaptor.getAllValues().get(0).get("/test.txt")).isEqualTo("/test.txt.metadata.json".getBytes());
+		assertThat(valuesCaptor.getAllValues().get(1)).containsOnlyKeys("/folder");
+		verify(backend).delete("/test.txt.metadata.json");
+		verify(backend).delete("/folder/.metadata.json");
+	}
+
+	@Test
+	public void keepExistingIndex() {
+		service.initBean();
+
+		verify(backend, never()).openStream(anyString());
+		verify(backend, never()).delete(anyString());
+	}
+}
@@ -0,0 +1,254 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.tobiasbruns.content.storage.InMemoryStorageBackend.Eviction;
+import de.tobiasbruns.content.storage.PathLocks.PathLock;
+import de.tobiasbruns.content.storage.exception.InsufficientStorageException;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class InMemoryStorageBackendTest {
+
+	private static final int PAGE_SIZE = 16;
+
+	private InMemoryStorageBackend backend = new InMemoryStorageBackend();
+	private PathLocks pathLocks = new PathLocks(64);
+	private ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+	@Before
+	public void initTest() {
+		initBackend(1024 * 1024, Eviction.NONE);
+	}
+
+	@Test
+	public void writeAndReadFile() throws IOException {
+		write("/test.txt", "test data");
+
+		assertThat(read("/test.txt")).isEqualTo("test data");
+		assertThat(backend.getAttributes("/test.txt").isRegularFile()).isTrue();
+		assertThat(backend.getAttributes("/test.txt").size()).isEqualTo(9);
+	}
+
+	@Test
+	public void replaceFile() throws IOException {
+		write("/test.txt", "old data");
+		InputStream oldStream = backend.openStream("/test.txt");
+		long oldModified = backend.getAttributes("/test.txt").lastModifiedTime().toMillis();
+
+		write("/test.txt", "new data");
+
+		assertThat(IOUtils.toString(oldStream, "UTF-8")).isEqualTo("old data");
+		assertThat(read("/test.txt")).isEqualTo("new data");
+		assertThat(backend.getAttributes("/test.txt").lastModifiedTime().toMillis()).isGreaterThanOrEqualTo(oldModified);
+	}
+
+	@Test(expected = ResourceNotFoundException.class)
+	public void writeFileWithoutFolder() {
+		write("/missing/test.txt", "test data");
+	}
+
+	@Test(expected = ResourceNotFoundException.class)
+	public void getAttributesNotExists() {
+		backend.getAttributes("/missing");
+	}
+
+	@Test
+	public void listDirectory() {
+		backend.createDirectory("/", "folder");
+		for (String name : new String[] { "c", "a", "a.metadata.json", "d", "b" }) {
+			write("/folder/" + name, name);
+		}
+
+		assertThat(backend.listDirectory("/folder", null, 2, name -> true)).containsExactly("a", "a.metadata.json");
+		assertThat(backend.listDirectory("/folder", "a", 2, name -> !MetaDataService.isMetaDataFile(name)))
+				.containsExactly("b", "c");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void listDirectoryNotADir() {
+		write("/test.txt", "test data");
+
+		backend.listDirectory("/test.txt", null, 1, name -> true);
+	}
+
+	@Test
+	public void renameFolder() throws IOException {
+		backend.createDirectory("/", "folder");
+		write("/folder/test.txt", "test data");
+
+		String newPath = backend.renameFile("/folder", "renamed");
+
+		assertThat(newPath).isEqualTo("/renamed");
+		assertThat(read("/renamed/test.txt")).isEqualTo("test data");
+		assertThat(backend.listDirectory("/", null, 10, name -> true)).containsExactly("renamed");
+	}
+
+	@Test
+	public void renameNotOntoExistingFile() throws IOException {
+		write("/test.txt", "test data");
+		write("/existing.txt", "existing data");
+
+		try {
+			backend.renameFile("/test.txt", "existing.txt");
+			fail("renamed onto an existing file");
+		} catch (UnprocessableEntityException e) {
+			assertThat(read("/existing.txt")).isEqualTo("existing data");
+			assertThat(read("/test.txt")).isEqualTo("test data");
+		}
+	}
+
+	@Test(expected = ResourceNotFoundException.class)
+	public void delete() {
+		backend.createDirectory("/", "folder");
+		write("/folder/test.txt", "test data");
+
+		backend.delete("/folder");
+
+		backend.getAttributes("/folder/test.txt");
+	}
+
+	@Test
+	public void releasePagesOfReplacedAndDeletedFiles() {
+		write("/test.txt", "test data");
+		assertThat(backend.getUsedBytes()).isEqualTo(PAGE_SIZE);
+
+		write("/test.txt", "more test data than fits into a page");
+		assertThat(backend.getUsedBytes()).isEqualTo(3 * PAGE_SIZE);
+
+		backend.delete("/test.txt");
+		assertThat(backend.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void keepPagesOfOpenStream() throws IOException {
+		write("/test.txt", "test data");
+		InputStream in = backend.openStream("/test.txt");
+
+		backend.delete("/test.txt");
+		assertThat(backend.getUsedBytes()).isEqualTo(PAGE_SIZE);
+
+		assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("test data");
+		in.close();
+		assertThat(backend.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void keepMetaDataOnHeap() {
+		write("/test.txt.metadata.json", "{}");
+
+		assertThat(backend.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void capacityExceeded() {
+		initBackend(2 * PAGE_SIZE, Eviction.NONE);
+		write("/first.txt", "first data");
+
+		try {
+			write("/second.txt", "more test data than fits");
+			fail("expected InsufficientStorageException");
+		} catch (InsufficientStorageException e) {
+			assertThat(backend.getUsedBytes()).isEqualTo(PAGE_SIZE);
+			assertThat(backend.listDirectory("/", null, 10, name -> true)).containsExactly("first.txt");
+		}
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws IOException {
+		initBackend(2 * PAGE_SIZE, Eviction.LRU);
+		backend.createDirectory("/", "folder");
+		write("/first.txt", "first data");
+		write("/folder/second.txt", "second data");
+		read("/first.txt");
+
+		write("/third.txt", "third data");
+
+		assertThat(backend.listDirectory("/", null, 10, name -> true)).containsExactly("first.txt", "folder",
+				"third.txt");
+		assertThat(backend.listDirectory("/folder", null, 10, name -> true)).isEmpty();
+		assertThat(read("/first.txt")).isEqualTo("first data");
+		verifyEvicted("/folder/second.txt");
+
+		write("/fourth.txt", "fourth data, two pages");
+
+		assertThat(backend.listDirectory("/", null, 10, name -> true)).containsExactly("folder", "fourth.txt");
+		verifyEvicted("/first.txt");
+		verifyEvicted("/third.txt");
+	}
+
+	@Test
+	public void skipLockedVictims() throws IOException {
+		initBackend(2 * PAGE_SIZE, Eviction.LRU);
+		write("/first.txt", "first data");
+		write("/second.txt", "second data");
+
+		try (PathLock lock = pathLocks.lockShared("/first.txt")) {
+			write("/third.txt", "third data");
+		}
+
+		assertThat(backend.listDirectory("/", null, 10, name -> true)).containsExactly("first.txt", "third.txt");
+		verifyEvicted("/second.txt");
+	}
+
+	@Test
+	public void keepAttributesOfReadVersion() {
+		write("/test.txt", "old data");
+		BasicFileAttributes attributes = backend.getAttributes("/");
+
+		write("/other.txt", "changes the folder");
+
+		assertThat(backend.getAttributes("/").lastModifiedTime()).isGreaterThan(attributes.lastModifiedTime());
+		assertThat(backend.getAttributes("/test.txt").fileKey()).isNotNull();
+		assertThat(backend.getAttributes("/test.txt").fileKey())
+				.isEqualTo(backend.getAttributes("/test.txt").fileKey());
+		Object fileKey = backend.getAttributes("/test.txt").fileKey();
+		write("/test.txt", "new data");
+		assertThat(backend.getAttributes("/test.txt").fileKey()).isNotEqualTo(fileKey);
+	}
+
+	private void verifyEvicted(String path) {
+		ArgumentCaptor<ContentEvictedEvent> captor = ArgumentCaptor.forClass(ContentEvictedEvent.class);
+		verify(eventPublisher, atLeastOnce()).publishEvent(captor.capture());
+		assertThat(captor.getAllValues()).extracting(ContentEvictedEvent::getPath).contains(path);
+	}
+
+	private void initBackend(long capacity, Eviction eviction) {
+		ReflectionTestUtils.setField(backend, "capacity", capacity);
+		ReflectionTestUtils.setField(backend, "pageSize", PAGE_SIZE);
+		ReflectionTestUtils.setField(backend, "eviction", eviction);
+		ReflectionTestUtils.setField(backend, "pathLocks", pathLocks);
+		ReflectionTestUtils.setField(backend, "eventPublisher", eventPublisher);
+		backend.init();
+	}
+
+	private void write(String path, String data) {
+		backend.writeFile(path, out -> out.write(data.getBytes("UTF-8")));
+	}
+
+	private String read(String path) throws IOException {
+		try (InputStream in = backend.openStream(path)) {
+			return IOUtils.toString(in, "UTF-8");
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "storage.backend=memory")
+public class InMemoryStorageITCase {
+
+	@Autowired
+	private StorageService service;
+	@Autowired
+	private StorageBackend backend;
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void writeAndLoadContent() throws IOException {
+		assertThat(backend).isInstanceOf(InMemoryStorageBackend.class);
+
+		Content<Object> folder = new Content<>();
+		folder.getHeader().setType(ContentItemType.NODE);
+		folder.getHeader().setName("memory");
+		service.createContent("/", folder);
+
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("test.txt");
+		content.getHeader().setContentType("text/plain");
+		content.setContent(new ByteArrayInputStream("test data".getBytes()));
+		String path = service.createContent("/memory", content);
+
+		try (InputStream data = (InputStream) service.readContent(path).getContent()) {
+			assertThat(IOUtils.toString(data, "UTF-8")).isEqualTo("test data");
+		}
+		Map<String, Object> listing = (Map<String, Object>) service.readContent("/memory").getContent();
+		assertThat(((FolderListing) listing.get("sub")).getChildren()).containsExactly("test.txt");
+	}
+}
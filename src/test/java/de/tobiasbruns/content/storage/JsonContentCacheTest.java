@@ -0,0 +1,116 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class JsonContentCacheTest {
+
+	private JsonContentCache cache = new JsonContentCache(24, 16);
+
+	private AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	public void loadOnce() {
+		BasicFileAttributes attributes = attributes(1, 9);
+
+		cache.get("/test.json", attributes, loader("test data"));
+		byte[] data = cache.get("test.json", attributes, loader("test data"));
+
+		assertThat(data).isEqualTo("test data".getBytes());
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(cache.getCachedBytes()).isEqualTo(9);
+	}
+
+	@Test
+	public void reloadChangedFile() {
+		cache.get("/test.json", attributes(1, 9), loader("test data"));
+
+		byte[] data = cache.get("/test.json", attributes(2, 8), loader("new data"));
+
+		assertThat(data).isEqualTo("new data".getBytes());
+		assertThat(loads.get()).isEqualTo(2);
+		assertThat(cache.getCachedBytes()).isEqualTo(8);
+	}
+
+	@Test
+	public void reloadReplacedFileOfSameTimeAndSize() {
+		cache.get("/test.json", attributes(1, 9, 1L), loader("test data"));
+
+		byte[] data = cache.get("/test.json", attributes(1, 9, 2L), loader("same size"));
+
+		assertThat(data).isEqualTo("same size".getBytes());
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void invalidate() {
+		cache.get("/test.json", attributes(1, 9), loader("test data"));
+
+		cache.invalidate("/test.json");
+
+		assertThat(cache.getCachedBytes()).isZero();
+	}
+
+	@Test
+	public void invalidateTree() {
+		cache.get("/folder/test.json", attributes(1, 9), loader("test data"));
+		cache.get("/folderSuffix/test.json", attributes(1, 9), loader("test data"));
+
+		cache.invalidateTree("/folder");
+
+		assertThat(cache.getCachedBytes()).isEqualTo(9);
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+		cache.get("/first.json", attributes(1, 10), loader("first data"));
+		cache.get("/second.json", attributes(1, 11), loader("second data"));
+		cache.get("/first.json", attributes(1, 10), loader("first data"));
+
+		cache.get("/third.json", attributes(1, 10), loader("third data"));
+
+		assertThat(cache.getCachedBytes()).isEqualTo(20);
+		cache.get("/first.json", attributes(1, 10), loader("first data"));
+		assertThat(loads.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void skipLargeFile() {
+		BasicFileAttributes attributes = attributes(1, 26);
+
+		assertThat(cache.isCacheable(attributes)).isFalse();
+	}
+
+	private Supplier<byte[]> loader(String data) {
+		return () -> {
+			loads.incrementAndGet();
+			return data.getBytes();
+		};
+	}
+
+	private BasicFileAttributes attributes(long lastModified, long size) {
+		return attributes(lastModified, size, null);
+	}
+
+	private BasicFileAttributes attributes(long lastModified, long size, Object fileKey) {
+		BasicFileAttributes attributes = mock(BasicFileAttributes.class);
+		when(attributes.fileKey()).thenReturn(fileKey);
+		when(attributes.isRegularFile()).thenReturn(true);
+		when(attributes.lastModifiedTime()).thenReturn(FileTime.fromMillis(lastModified));
+		when(attributes.size()).thenReturn(size);
+		return attributes;
+	}
+}
@@ -0,0 +1,101 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class JsonPatchTest {
+
+	private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void addMember() throws IOException {
+		assertThat(patch("{'a':1}", "[{'op':'add','path':'/b','value':{'c':2}}]")).isEqualTo(json("{'a':1,'b':{'c':2}}"));
+	}
+
+	@Test
+	public void addArrayElements() throws IOException {
+		assertThat(patch("{'a':[1,3]}", "[{'op':'add','path':'/a/1','value':2},{'op':'add','path':'/a/-','value':4}]"))
+				.isEqualTo(json("{'a':[1,2,3,4]}"));
+	}
+
+	@Test
+	public void removeAndReplace() throws IOException {
+		assertThat(patch("{'a':1,'b':[1,2],'c':3}",
+				"[{'op':'remove','path':'/a'},{'op':'remove','path':'/b/0'},{'op':'replace','path':'/c','value':'x'}]"))
+						.isEqualTo(json("{'b':[2],'c':'x'}"));
+	}
+
+	@Test
+	public void moveAndCopy() throws IOException {
+		assertThat(patch("{'a':{'b':1},'c':{}}",
+				"[{'op':'move','from':'/a/b','path':'/c/b'},{'op':'copy','from':'/c','path':'/d'}]"))
+						.isEqualTo(json("{'a':{},'c':{'b':1},'d':{'b':1}}"));
+	}
+
+	@Test
+	public void passTest() throws IOException {
+		assertThat(patch("{'a':[1,{'b':true}]}", "[{'op':'test','path':'/a/1','value':{'b':true}}]"))
+				.isEqualTo(json("{'a':[1,{'b':true}]}"));
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void failTest() throws IOException {
+		patch("{'a':1}", "[{'op':'test','path':'/a','value':2}]");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void removeMissingMember() throws IOException {
+		patch("{'a':1}", "[{'op':'remove','path':'/b'}]");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void addToMissingParent() throws IOException {
+		patch("{'a':1}", "[{'op':'add','path':'/b/c','value':1}]");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void addBeyondArrayEnd() throws IOException {
+		patch("{'a':[1]}", "[{'op':'add','path':'/a/2','value':1}]");
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void unknownOperation() throws IOException {
+		patch("{'a':1}", "[{'op':'increment','path':'/a'}]");
+	}
+
+	@Test
+	public void mergePatch() throws IOException {
+		JsonNode merged = JsonPatch.merge(json("{'title':'Goodbye!','author':{'givenName':'John','familyName':'Doe'},"
+				+ "'tags':['example','sample'],'content':'This will be unchanged'}"),
+				json("{'title':'Hello!','phoneNumber':'+01-123-456-7890','author':{'familyName':null},'tags':['example']}"));
+
+		assertThat(merged).isEqualTo(json("{'title':'Hello!','author':{'givenName':'John'},'tags':['example'],"
+				+ "'content':'This will be unchanged','phoneNumber':'+01-123-456-7890'}"));
+	}
+
+	@Test
+	public void mergeIntoNonObject() throws IOException {
+		assertThat(JsonPatch.merge(json("{'a':'b'}"), json("{'a':{'b':'c'}}"))).isEqualTo(json("{'a':{'b':'c'}}"));
+	}
+
+	private JsonNode patch(String document, String patch) throws IOException {
+		return JsonPatch.apply(json(document), json(patch));
+	}
+
+	private JsonNode json(String json) throws IOException {
+		return mapper.readTree(json.replace('\'', '"'));
+	}
+}
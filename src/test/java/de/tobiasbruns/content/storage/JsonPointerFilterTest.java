@@ -0,0 +1,60 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class JsonPointerFilterTest {
+
+	private static final String DOCUMENT = "{\"name\":\"Lorem Ipsum\",\"nested\":{\"a\":1,\"b\":[1,{\"c\":2},3]},"
+			+ "\"values\":[1,2,3]}";
+
+	private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void selectField() throws IOException {
+		assertThat(select("/name")).isEqualTo("{\"name\":\"Lorem Ipsum\"}");
+	}
+
+	@Test
+	public void selectSeveralFields() throws IOException {
+		assertThat(select("/values", "/nested/b/1/c")).isEqualTo("{\"nested\":{\"b\":[{\"c\":2}]},\"values\":[1,2,3]}");
+	}
+
+	@Test
+	public void selectArrayElement() throws IOException {
+		assertThat(select("/values/1")).isEqualTo("{\"values\":[2]}");
+	}
+
+	@Test
+	public void selectWholeDocument() throws IOException {
+		assertThat(select("")).isEqualTo(DOCUMENT);
+	}
+
+	@Test
+	public void selectNothing() throws IOException {
+		assertThat(select("/missing")).isEqualTo("null");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidPointer() {
+		JsonPointerFilter.of(Collections.singletonList("name"));
+	}
+
+	private String select(String... pointers) throws IOException {
+		TokenFilter filter = JsonPointerFilter.of(Arrays.asList(pointers));
+		return mapper.writeValueAsString(new RawJson(DOCUMENT.getBytes()).select(filter));
+	}
+}
@@ -0,0 +1,133 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class MappedFileCacheTest {
+
+	private MappedFileCache cache = new MappedFileCache(16, 24);
+
+	private File testDir;
+
+	@Before
+	public void initTest() throws IOException {
+		testDir = Files.createTempDirectory("mappedfiles").toFile();
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		FileUtils.deleteDirectory(testDir);
+	}
+
+	@Test
+	public void readMappedFile() throws IOException {
+		File file = createFile("test.txt", "test data");
+
+		assertThat(read("/test.txt", file)).isEqualTo("test data");
+		assertThat(cache.getMappedBytes()).isEqualTo(9);
+	}
+
+	@Test
+	public void keepMappingOfChangedFileUntilInvalidated() throws IOException {
+		File file = createFile("test.txt", "test data");
+		read("/test.txt", file);
+
+		replaceFile(file, "new data");
+		assertThat(read("test.txt", file)).isEqualTo("test data");
+
+		cache.invalidate("/test.txt");
+		assertThat(read("/test.txt", file)).isEqualTo("new data");
+	}
+
+	@Test
+	public void invalidateTree() throws IOException {
+		File file = createFile("test.txt", "test data");
+		read("/folder/test.txt", file);
+		read("/folderSuffix/test.txt", file);
+
+		cache.invalidateTree("/folder");
+
+		assertThat(cache.getMappedBytes()).isEqualTo(9);
+	}
+
+	@Test
+	public void skipLargeFile() throws IOException {
+		File file = createFile("large.txt", "more test data than mapped");
+
+		try (InputStream in = cache.open("/large.txt", file)) {
+			assertThat(in).isNull();
+		}
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws IOException {
+		File first = createFile("first.txt", "first data");
+		File second = createFile("second.txt", "second data");
+		File third = createFile("third.txt", "third data");
+		read("/first.txt", first);
+		read("/second.txt", second);
+		read("/first.txt", first);
+
+		read("/third.txt", third);
+
+		assertThat(cache.getMappedBytes()).isEqualTo(20);
+		replaceFile(second, "changed");
+		assertThat(read("/second.txt", second)).isEqualTo("changed");
+	}
+
+	@Test
+	public void readOpenStreamAfterEviction() throws IOException {
+		File file = createFile("test.txt", "test data");
+		try (InputStream in = cache.open("/test.txt", file)) {
+			cache.invalidate("/test.txt");
+
+			assertThat(IOUtils.toString(in, "UTF-8")).isEqualTo("test data");
+		}
+	}
+
+	@Test
+	public void transferRange() throws IOException {
+		File file = createFile("test.txt", "test data");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try (InputStream in = cache.open("/test.txt", file)) {
+			((RandomAccessContent) in).transferTo(5, 4, out);
+		}
+
+		assertThat(out.toString("UTF-8")).isEqualTo("data");
+	}
+
+	private File createFile(String name, String data) throws IOException {
+		File file = new File(testDir, name);
+		Files.write(file.toPath(), data.getBytes());
+		return file;
+	}
+
+	private void replaceFile(File file, String data) throws IOException {
+		File newFile = createFile(file.getName() + ".new", data);
+		Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private String read(String path, File file) throws IOException {
+		try (InputStream in = cache.open(path, file)) {
+			return IOUtils.toString(in, "UTF-8");
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "storage.backend=memory", "storage.metadata.store=index",
+		"storage.root=target/metadata-index" })
+public class MetaDataIndexITCase {
+
+	@Autowired
+	private StorageService service;
+	@Autowired
+	private StorageBackend backend;
+
+	@Test(expected = ResourceNotFoundException.class)
+	public void storeMetaDataInIndex() throws IOException {
+		Content<Object> folder = new Content<>();
+		folder.getHeader().setType(ContentItemType.NODE);
+		folder.getHeader().setName("indexed");
+		service.createContent("/", folder);
+		MetaDatum owner = new MetaDatum();
+		owner.setKey("owner");
+		owner.setValue("tobias");
+		service.writeMetaData("/indexed", Collections.singleton(owner));
+
+		Content<InputStream> content = new Content<>();
+		content.getHeader().setType(ContentItemType.LEAF);
+		content.getHeader().setName("test.txt");
+		content.getHeader().setContentType("text/plain");
+		content.setContent(new ByteArrayInputStream("test data".getBytes()));
+		String path = service.createContent("/indexed", content);
+
+		MetaData metaData = service.loadMetaData(path);
+		assertThat(metaData.getContentType().orElse(null)).isEqualTo("text/plain");
+		assertThat(metaData.getData()).extracting(MetaDatum::getKey).containsExactly("owner");
+
+		Content<Object> renamed = new Content<>();
+		renamed.getHeader().setType(ContentItemType.NODE);
+		renamed.getHeader().setName("renamed");
+		service.writeContent("/indexed", renamed);
+		assertThat(service.loadMetaData("/renamed/test.txt").getContentType().orElse(null))
+				.isEqualTo("text/plain");
+
+		backend.getAttributes(MetaDataService.buildMetaDataFileNameForFile("/renamed/test.txt"));
+	}
+}
@@ -0,0 +1,161 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tobiasbruns.content.storage.FileSystemService.SyncPolicy;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class MetaDataIndexTest {
+
+	private File testDir;
+	private File indexFile;
+	private MetaDataIndex index;
+
+	@Before
+	public void initTest() throws IOException {
+		testDir = Files.createTempDirectory("metadataindex").toFile();
+		indexFile = new File(testDir, MetaDataIndex.FILE_NAME);
+		index = new MetaDataIndex(indexFile, SyncPolicy.NONE, Long.MAX_VALUE);
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		index.close();
+		FileUtils.deleteDirectory(testDir);
+	}
+
+	@Test
+	public void putAndGet() {
+		index.put("/folder/test.json", bytes("test data"));
+		index.put("folder/test.json/", bytes("new data"));
+
+		assertThat(string(index.get("/folder/test.json"))).isEqualTo("new data");
+		assertThat(index.get("/folder")).isNull();
+	}
+
+	@Test
+	public void reportCreatedIndex() throws IOException {
+		assertThat(index.isCreated()).isTrue();
+
+		index.close();
+		index = new MetaDataIndex(indexFile, SyncPolicy.NONE, Long.MAX_VALUE);
+
+		assertThat(index.isCreated()).isFalse();
+	}
+
+	@Test
+	public void putAll() {
+		Map<String, byte[]> values = new LinkedHashMap<>();
+		values.put("/folder/a.json", bytes("a"));
+		values.put("folder/b.json", bytes("b"));
+
+		index.putAll(values);
+
+		assertThat(string(index.get("/folder/a.json"))).isEqualTo("a");
+		assertThat(string(index.get("/folder/b.json"))).isEqualTo("b");
+	}
+
+	@Test
+	public void renameTree() {
+		index.put("/folder", bytes("folder"));
+		index.put("/folder/test.json", bytes("file"));
+		index.put("/folder2/test.json", bytes("other"));
+
+		index.rename("/folder", "/renamed");
+
+		assertThat(index.get("/folder")).isNull();
+		assertThat(index.get("/folder/test.json")).isNull();
+		assertThat(string(index.get("/renamed"))).isEqualTo("folder");
+		assertThat(string(index.get("/renamed/test.json"))).isEqualTo("file");
+		assertThat(string(index.get("/folder2/test.json"))).isEqualTo("other");
+	}
+
+	@Test
+	public void deleteTree() {
+		index.put("/folder", bytes("folder"));
+		index.put("/folder/sub/test.json", bytes("file"));
+		index.put("/folder.json", bytes("other"));
+
+		index.delete("/folder");
+
+		assertThat(index.get("/folder")).isNull();
+		assertThat(index.get("/folder/sub/test.json")).isNull();
+		assertThat(string(index.get("/folder.json"))).isEqualTo("other");
+	}
+
+	@Test
+	public void replayOnOpen() throws IOException {
+		index.put("/test.json", bytes("test data"));
+		index.put("/deleted.json", bytes("deleted"));
+		index.delete("/deleted.json");
+		index.close();
+
+		index = new MetaDataIndex(indexFile, SyncPolicy.NONE, Long.MAX_VALUE);
+
+		assertThat(string(index.get("/test.json"))).isEqualTo("test data");
+		assertThat(index.get("/deleted.json")).isNull();
+	}
+
+	@Test
+	public void cutOffTornRecord() throws IOException {
+		index.put("/test.json", bytes("test data"));
+		long validSize = index.getFileSize();
+		index.put("/torn.json", bytes("torn data"));
+		index.close();
+		try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		index = new MetaDataIndex(indexFile, SyncPolicy.NONE, Long.MAX_VALUE);
+
+		assertThat(string(index.get("/test.json"))).isEqualTo("test data");
+		assertThat(index.get("/torn.json")).isNull();
+		assertThat(index.getFileSize()).isEqualTo(validSize);
+	}
+
+	@Test
+	public void compactOutdatedRecords() throws IOException {
+		index.close();
+		index = new MetaDataIndex(indexFile, SyncPolicy.NONE, 256);
+		index.put("/kept.json", bytes("kept"));
+		for (int i = 0; i < 100; i++) {
+			index.put("/test.json", bytes("version " + i));
+		}
+
+		assertThat(index.getFileSize()).isLessThan(512);
+		assertThat(string(index.get("/kept.json"))).isEqualTo("kept");
+		assertThat(string(index.get("/test.json"))).isEqualTo("version 99");
+		assertThat(new File(testDir, MetaDataIndex.FILE_NAME + ".compact")).doesNotExist();
+	}
+
+	@Test
+	public void isIndexPath() {
+		assertThat(MetaDataIndex.isIndexPath("/.metadata.index")).isTrue();
+		assertThat(MetaDataIndex.isIndexPath("folder/.metadata.index")).isFalse();
+	}
+
+	private byte[] bytes(String data) {
+		return data.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private String string(byte[] data) {
+		return new String(data, StandardCharsets.UTF_8);
+	}
+}
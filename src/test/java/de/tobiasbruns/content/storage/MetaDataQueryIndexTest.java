@@ -0,0 +1,171 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+@SuppressWarnings("unchecked")
+public class MetaDataQueryIndexTest {
+
+	@InjectMocks
+	private MetaDataQueryIndex index;
+	@Mock
+	private StorageBackend backend;
+	@Mock
+	private MetaDataService metaDataService;
+
+	@Before
+	public void initTest() {
+		when(metaDataService.readMetaData(anyString(), anyBoolean())).thenReturn(new MetaData());
+		when(backend.listDirectory(anyString(), anyString(), anyInt(), any(Predicate.class)))
+				.thenReturn(Collections.emptyList());
+		// builds the empty index, so the updates are tracked
+		index.find("/", "tag", "red", null, 10);
+	}
+
+	@Test
+	public void buildByWalkingTheTree() {
+		index = createIndex();
+		BasicFileAttributes file = mock(BasicFileAttributes.class);
+		when(backend.listDirectory(eq("/"), (String) isNull(), anyInt(), any(Predicate.class)))
+				.thenReturn(Arrays.asList("test.json"));
+		when(backend.getAttributes("/test.json")).thenReturn(file);
+		MetaData metaData = new MetaData();
+		metaData.setData(data("tag", "red"));
+		when(metaDataService.readMetaData("/test.json", false)).thenReturn(metaData);
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/test.json");
+	}
+
+	@Test
+	public void ignoreUpdatesBeforeBuild() {
+		index = createIndex();
+
+		index.update("/test.json", data("tag", "red"));
+
+		assertThat(index.find("/", "tag", "red", null, 10)).isEmpty();
+	}
+
+	@Test
+	public void findOwnValue() {
+		index.update("/a", data());
+		index.update("a/x.json", data("tag", "red"));
+		index.update("/a/y.json", data("tag", "blue"));
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/a/x.json");
+		assertThat(index.find("/a", "tag", "blue", null, 10)).containsExactly("/a/y.json");
+		assertThat(index.find("/b", "tag", "red", null, 10)).isEmpty();
+	}
+
+	@Test
+	public void findInheritedValue() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/x.json", data());
+		index.update("/a/b", data());
+		index.update("/a/b/y.json", data());
+		index.update("/c", data());
+		index.update("/c/z.json", data());
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/a", "/a/b", "/a/b/y.json",
+				"/a/x.json");
+		assertThat(index.find("/a/b", "tag", "red", null, 10)).containsExactly("/a/b/y.json");
+	}
+
+	@Test
+	public void ownValueWinsOverInherited() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/x.json", data("tag", "blue"));
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/a");
+		assertThat(index.find("/a", "tag", "blue", null, 10)).containsExactly("/a/x.json");
+	}
+
+	@Test
+	public void outermostFolderWins() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/b", data("tag", "blue"));
+		index.update("/a/b/y.json", data());
+
+		assertThat(index.find("/", "tag", "blue", null, 10)).containsExactly("/a/b");
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/a", "/a/b/y.json");
+	}
+
+	@Test
+	public void findPaged() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/1.json", data());
+		index.update("/a/2.json", data());
+		index.update("/a/3.json", data());
+
+		assertThat(index.find("/a", "tag", "red", null, 2)).containsExactly("/a/1.json", "/a/2.json");
+		assertThat(index.find("/a", "tag", "red", "/a/2.json", 2)).containsExactly("/a/3.json");
+	}
+
+	@Test
+	public void renameTree() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/x.json", data());
+		index.update("/ab.json", data());
+
+		index.rename("/a", "/b");
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/b", "/b/x.json");
+	}
+
+	@Test
+	public void removeTree() {
+		index.update("/a", data("tag", "red"));
+		index.update("/a/x.json", data());
+		index.update("/x.json", data("tag", "red"));
+
+		index.remove("/a", true);
+
+		assertThat(index.find("/", "tag", "red", null, 10)).containsExactly("/x.json");
+	}
+
+	private MetaDataQueryIndex createIndex() {
+		MetaDataQueryIndex unbuilt = new MetaDataQueryIndex();
+		ReflectionTestUtils.setField(unbuilt, "backend", backend);
+		ReflectionTestUtils.setField(unbuilt, "metaDataService", metaDataService);
+		return unbuilt;
+	}
+
+	private Collection<MetaDatum> data(String... keysAndValues) {
+		List<MetaDatum> data = new ArrayList<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			MetaDatum datum = new MetaDatum();
+			datum.setKey(keysAndValues[i]);
+			datum.setValue(keysAndValues[i + 1]);
+			data.add(datum);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,125 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.tobiasbruns.content.storage.PathLocks.PathLock;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class PathLocksTest {
+
+	private PathLocks locks = new PathLocks(1024);
+
+	private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@After
+	public void cleanup() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shareReadLocks() throws Exception {
+		try (PathLock lock = locks.lockShared("/folder/test.json")) {
+			assertThat(isAcquired(() -> locks.lockShared("/folder/test.json"))).isTrue();
+		}
+	}
+
+	@Test
+	public void excludeReadersWhileWriting() throws Exception {
+		Future<?> reader;
+		try (PathLock lock = locks.lockExclusive("/folder/test.json")) {
+			reader = executor.submit(() -> locks.lockShared("folder/test.json/").close());
+			assertThat(isDone(reader)).isFalse();
+		}
+		reader.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void excludeDescendantsOfWrittenFolder() throws Exception {
+		Future<?> writer;
+		try (PathLock lock = locks.lockExclusive("/folder")) {
+			writer = executor.submit(() -> locks.lockExclusive("/folder/sub/test.json").close());
+			assertThat(isDone(writer)).isFalse();
+		}
+		writer.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void writeDisjointPathsConcurrently() throws Exception {
+		try (PathLock lock = locks.lockExclusive("/folder/test1.json")) {
+			assertThat(isAcquired(() -> locks.lockExclusive("/folder/test2.json"))).isTrue();
+			assertThat(isAcquired(() -> locks.lockShared("/folder"))).isTrue();
+		}
+	}
+
+	@Test
+	public void tryLockOnlyUnlockedPaths() throws Exception {
+		try (PathLock lock = locks.lockExclusive("/folder/test1.json")) {
+			assertThat(locks.tryLockExclusive("/folder/test1.json")).isNull();
+			assertThat(executor.submit(() -> locks.tryLockExclusive("/folder")).get(1, TimeUnit.SECONDS)).isNull();
+			PathLock other = locks.tryLockExclusive("/folder/test2.json");
+			assertThat(other).isNotNull();
+			other.close();
+		}
+		Future<Boolean> unlocked = executor.submit(() -> {
+			PathLock lock = locks.tryLockExclusive("/folder/test1.json");
+			if (lock == null) {
+				return false;
+			}
+			lock.close();
+			return true;
+		});
+		assertThat(unlocked.get(1, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void lockOldAndNewPathOfRename() throws Exception {
+		Future<?> reader;
+		try (PathLock lock = locks.lockExclusive("/folder/old.json", "/folder/new.json")) {
+			reader = executor.submit(() -> locks.lockShared("/folder/new.json").close());
+			assertThat(isDone(reader)).isFalse();
+		}
+		reader.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void mergeStripesOfSinglePath() {
+		PathLocks singleStripe = new PathLocks(1);
+
+		// the ancestors share the stripe of the path, which must be locked exclusively once
+		singleStripe.lockExclusive("/folder/test.json").close();
+		singleStripe.lockShared("/folder/test.json").close();
+	}
+
+	private boolean isAcquired(Callable<PathLock> acquire) throws Exception {
+		// the lock is released by the thread holding it
+		Future<?> lock = executor.submit(() -> {
+			acquire.call().close();
+			return null;
+		});
+		try {
+			lock.get(1, TimeUnit.SECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+
+	private boolean isDone(Future<?> future) throws InterruptedException {
+		Thread.sleep(100);
+		return future.isDone();
+	}
+}
@@ -0,0 +1,64 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+public class RawJsonTest {
+
+	private static final String DOCUMENT = "{\"name\":\"Lorem Ipsum\",\"values\":[1,2,3]}";
+
+	private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void copyToStream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		mapper.writeValue(out, buildEnvelope());
+
+		assertThat(out.toString("UTF-8")).isEqualTo("{\"before\":1,\"content\":" + DOCUMENT + ",\"after\":[2,"
+				+ DOCUMENT + "]}");
+	}
+
+	@Test
+	public void writeToWriter() throws IOException {
+		String json = mapper.writeValueAsString(buildEnvelope());
+
+		assertThat(json).isEqualTo("{\"before\":1,\"content\":" + DOCUMENT + ",\"after\":[2," + DOCUMENT + "]}");
+	}
+
+	@Test
+	public void consumeOpenedStream() throws IOException {
+		ByteArrayInputStream in = spy(new ByteArrayInputStream(DOCUMENT.getBytes()));
+		RawJson content = new RawJson(in);
+
+		assertThat(mapper.writeValueAsString(content)).isEqualTo(DOCUMENT);
+		verify(in).close();
+		assertThatThrownBy(() -> mapper.writeValueAsString(content)).hasRootCauseInstanceOf(IllegalStateException.class);
+	}
+
+	private Map<String, Object> buildEnvelope() {
+		Map<String, Object> envelope = new LinkedHashMap<>();
+		envelope.put("before", 1);
+		envelope.put("content", new RawJson(DOCUMENT.getBytes()));
+		envelope.put("after", Arrays.asList(2, new RawJson(DOCUMENT.getBytes())));
+		return envelope;
+	}
+}
@@ -0,0 +1,72 @@
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ReadFolderTest {
+
+	@InjectMocks
+	private ContentService service;
+	@Mock
+	private StorageBackend backend;
+	@Mock
+	private ContentHandle handle;
+	@Mock
+	private BasicFileAttributes attributes;
+
+	@Before
+	public void initTest() {
+		when(handle.getPath()).thenReturn("/folder");
+		when(handle.getAttributes()).thenReturn(attributes);
+		when(backend.listDirectory(anyString(), anyString(), anyInt(), any(Predicate.class)))
+				.thenReturn(Arrays.asList("a", "b"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void listAllChildren() {
+		Map<String, Object> folder = service.readJsonData(handle);
+
+		verify(backend).listDirectory(eq("/folder"), isNull(String.class), eq(Integer.MAX_VALUE), any(Predicate.class));
+		assertThat(folder).doesNotContainKey(ContentService.NEXT_CURSOR);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void listDefaultPageAfterCursor() {
+		service.readJsonData(handle, new Paging("a", null));
+
+		verify(backend).listDirectory(eq("/folder"), eq("a"), eq(1001), any(Predicate.class));
+	}
+
+	@Test
+	public void listRequestedPage() {
+		Map<String, Object> folder = service.readJsonData(handle, new Paging(null, 1));
+
+		assertThat(folder).containsEntry(ContentService.NEXT_CURSOR, "a");
+	}
+}
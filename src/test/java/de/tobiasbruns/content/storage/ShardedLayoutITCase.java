@@ -0,0 +1,65 @@
+package de.tobiasbruns.content.storage;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * created: 18.10.2026
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "storage.layout=SHARDED", "storage.root=target/sharded" })
+@AutoConfigureMockMvc
+public class ShardedLayoutITCase {
+
+	private static final String BASE = "http://localhost";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeClass
+	@AfterClass
+	public static void cleanup() throws IOException {
+		FileUtils.deleteDirectory(new File("target/sharded"));
+	}
+
+	@Test
+	public void conditionalGetOfChangedFolder() throws Exception {
+		mockMvc.perform(post(BASE + "/").contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"header\":{\"name\":\"folder\",\"type\":\"NODE\"}}")).andExpect(status().isCreated());
+		createChild("first.json", "1");
+
+		String eTag = mockMvc.perform(get(BASE + "/folder")).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader("ETag");
+		mockMvc.perform(get(BASE + "/folder").header("If-None-Match", eTag)).andExpect(status().isNotModified());
+
+		// replaces the child within its existing shard directory
+		createChild("first.json", "12345");
+
+		mockMvc.perform(get(BASE + "/folder").header("If-None-Match", eTag)).andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(eTag)));
+	}
+
+	private void createChild(String name, String value) throws Exception {
+		mockMvc.perform(post(BASE + "/folder").contentType(MediaType.APPLICATION_JSON_UTF8).content(
+				"{\"header\":{\"name\":\"" + name + "\",\"type\":\"LEAF\"},\"content\":{\"a\":" + value + "}}"))
+				.andExpect(status().isCreated());
+	}
+}
@@ -1,89 +1,180 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import static org.assertj.core.api.Assertions.assertThat;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.apache.tomcat.util.http.fileupload.FileUtils;
-import org.junit.AfterClass;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.test.context.junit4.SpringRunner;
-
-/**
- * created: 26.10.2016
- *
- * @author Tobias Bruns
- */
-@RunWith(SpringRunner.class)
-@SpringBootTest
-public class StorageServiceITCase {
-
-   @Autowired
-   private StorageService service;
-
-   @AfterClass
-   public static void cleanup() throws IOException {
-      FileUtils.cleanDirectory(new File("testroot"));
-   }
-
-   @Test
-   public void writeAndLoadContent() {
-      service.createContent("/", createTestJsonContent());
-
-      Content<?> content = service.readContent("/testcontent.json");
-
-      assertThat(content).isNotNull();
-      assertThat(content.getHeader().isJsonContent()).isTrue();
-   }
-
-   @Test
-   public void loadDirectory() {
-      Content<?> content = service.readContent("/");
-
-      assertThat(content).isNotNull();
-      assertThat(content.getHeader().isJsonContent()).isTrue();
-   }
-
-   private Content<Map<String, Object>> createTestJsonContent() {
-      Content<Map<String, Object>> content = new Content<>();
-      content.setMetaData(MetaDataServiceITCase.createTestData());
-      content.setHeader(createJsonHeader());
-      content.getHeader().setName("testcontent.json");
-
-      Map<String, Object> data = new HashMap<>();
-      data.put("val1", "Lorem Ipsum");
-      data.put("val int", 42);
-      data.put("bool", true);
-      content.setContent(data);
-
-      return content;
-   }
-
-   private ContentHeader createJsonHeader() {
-      ContentHeader header = new ContentHeader();
-      header.setContentType("application/json");
-      return header;
-   }
-
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tobiasbruns.content.storage.exception.PreconditionFailedException;
+
+/**
+ * created: 26.10.2016
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StorageServiceITCase {
+
+   @Autowired
+   private StorageService service;
+
+   @AfterClass
+   public static void cleanup() throws IOException {
+      FileUtils.cleanDirectory(new File("testroot"));
+   }
+
+   @Test
+   public void writeAndLoadContent() {
+      service.createContent("/", createTestJsonContent());
+
+      Content<?> content = service.readContent("/testcontent.json");
+
+      assertThat(content).isNotNull();
+      assertThat(content.getHeader().isJsonContent()).isTrue();
+   }
+
+   @Test
+   public void loadDirectory() {
+      Content<?> content = service.readContent("/");
+
+      assertThat(content).isNotNull();
+      assertThat(content.getHeader().isJsonContent()).isTrue();
+   }
+
+   @Test
+   public void readConsistentContentWhileWriting() throws Exception {
+      service.createContent("/", createTextContent("concurrent.txt", "text/plain"));
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> tasks = new ArrayList<>();
+         for (int i = 0; i < 2; i++) {
+            String contentType = i == 0 ? "text/plain" : "text/csv";
+            tasks.add(executor.submit(() -> {
+               for (int j = 0; j < 50; j++) {
+                  service.writeContent("/concurrent.txt", createTextContent("concurrent.txt", contentType));
+               }
+            }));
+            tasks.add(executor.submit(() -> {
+               for (int j = 0; j < 50; j++) {
+                  Content<?> content = service.readContent("/concurrent.txt");
+                  try (InputStream data = (InputStream) content.getContent()) {
+                     // the data are written with the content type they belong to
+                     assertThat(IOUtils.toString(data, "UTF-8"))
+                           .isEqualTo(content.getMetaData().getContentType().get());
+                  }
+               }
+               return null;
+            }));
+         }
+         for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void writeJsonContentReadBeforeReplacing() throws Exception {
+      // too large for the JSON cache, so the document is streamed from the file
+      String text = StringUtils.repeat('a', 2 * 1024 * 1024);
+      Content<Map<String, Object>> original = createTestJsonContent();
+      original.getHeader().setName("large.json");
+      original.getContent().put("text", text);
+      service.createContent("/", original);
+
+      Content<?> content = service.readContent("/large.json");
+      Content<Map<String, Object>> replacement = createTestJsonContent();
+      replacement.getHeader().setName("large.json");
+      service.writeContent("/large.json", replacement);
+
+      Map<?, ?> written = new ObjectMapper().readValue(new ObjectMapper().writeValueAsBytes(content.getContent()),
+            Map.class);
+      assertThat(written.get("text")).isEqualTo(text);
+   }
+
+   @Test(expected = PreconditionFailedException.class)
+   public void rejectEntityTagOfDeletedContent() {
+      service.createContent("/", createTextContent("recreated.txt", "text/plain"));
+      String eTag = service.resolve("/recreated.txt").getETag("text/plain");
+      BulkOperation delete = new BulkOperation();
+      delete.setOp(BulkOperation.Type.DELETE);
+      delete.setPath("recreated.txt");
+      service.applyBatch("/", Collections.singletonList(delete), 0);
+      service.createContent("/", createTextContent("recreated.txt", "text/plain"));
+
+      service.writeContent("/recreated.txt", createTextContent("recreated.txt", "text/plain"), IfMatch.parse(eTag));
+   }
+
+   private Content<InputStream> createTextContent(String name, String contentType) {
+      Content<InputStream> content = new Content<>();
+      content.getHeader().setType(ContentHeader.ContentItemType.LEAF);
+      content.getHeader().setName(name);
+      content.getHeader().setContentType(contentType);
+      content.setContent(new ByteArrayInputStream(contentType.getBytes(StandardCharsets.UTF_8)));
+      return content;
+   }
+
+   private Content<Map<String, Object>> createTestJsonContent() {
+      Content<Map<String, Object>> content = new Content<>();
+      content.setMetaData(MetaDataServiceITCase.createTestData());
+      content.setHeader(createJsonHeader());
+      content.getHeader().setName("testcontent.json");
+
+      Map<String, Object> data = new HashMap<>();
+      data.put("val1", "Lorem Ipsum");
+      data.put("val int", 42);
+      data.put("bool", true);
+      content.setContent(data);
+
+      return content;
+   }
+
+   private ContentHeader createJsonHeader() {
+      ContentHeader header = new ContentHeader();
+      header.setContentType("application/json");
+      return header;
+   }
+
+}
@@ -1,94 +1,126 @@
-/*
- * Copyright 2016 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.tobiasbruns.content.storage;
-
-import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.*;
-import static org.mockito.Mockito.*;
-
-import java.io.File;
-
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.runners.MockitoJUnitRunner;
-
-import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
-
-/**
- * created: 01.11.2016
- *
- * @author Tobias Bruns
- */
-@RunWith(MockitoJUnitRunner.class)
-public class WriteContentTest {
-
-	@InjectMocks
-	private StorageService service;
-	@Mock
-	private FileSystemService fsService;
-	@Mock
-	private MetaDataService metaDataService;
-	@Mock
-	private ContentService contentService;
-	@Mock
-	private ContentHeaderService contentHeaderService;
-
-	@Mock
-	private File mockFile;
-	@Mock
-	private ContentHeader header;
-
-	@Before
-	public void initTest() {
-		when(fsService.getFile(anyString())).thenReturn(mockFile);
-		when(contentHeaderService.getContentHeader(anyString())).thenReturn(header);
-	}
-
-	@Test
-	public void changeFolderName() {
-		when(fsService.renameFile(anyString(), anyString())).thenReturn("test/new_name");
-		Content<?> folder = buildFolder();
-		folder.getHeader().setName("new_name");
-
-		String newPath = service.writeContent("test/path", folder);
-
-		verify(fsService).renameFile("test/path", "new_name");
-		verify(metaDataService).writeMetaData(eq("test/new_name"), notNull(MetaData.class));
-		verify(metaDataService, never()).renameMetaDataFile(anyString(), anyString());
-
-		assertThat(newPath).isEqualTo("test/new_name");
-	}
-
-	@Test
-	public void readBinaryContent() {
-		when(header.isJsonContent()).thenReturn(false);
-
-		Content<?> content = service.readContent("path/to/content.jpeg");
-
-		verify(contentService).readBinaryData(eq("path/to/content.jpeg"));
-		verify(metaDataService).loadMetaData(eq("path/to/content.jpeg"));
-		assertThat(content.getHeader()).as("Binary Content Header").isNotNull().isSameAs(header);
-	}
-
-	private Content<?> buildFolder() {
-		Content<?> content = new Content<>();
-		content.getHeader().setType(ContentItemType.NODE);
-		return content;
-	}
-}
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tobiasbruns.content.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import de.tobiasbruns.content.storage.ContentHeader.ContentItemType;
+import de.tobiasbruns.content.storage.exception.ResourceNotFoundException;
+import de.tobiasbruns.content.storage.exception.UnprocessableEntityException;
+
+/**
+ * created: 01.11.2016
+ *
+ * @author Tobias Bruns
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WriteContentTest {
+
+	@InjectMocks
+	private StorageService service;
+	@Spy
+	private PathLocks pathLocks = new PathLocks(16);
+	@Mock
+	private StorageBackend backend;
+	@Mock
+	private MetaDataService metaDataService;
+	@Mock
+	private ContentService contentService;
+	@Mock
+	private ContentHeaderService contentHeaderService;
+
+	@Captor
+	private ArgumentCaptor<ContentHandle> handleCaptor;
+
+	@Mock
+	private BasicFileAttributes attributes;
+	@Mock
+	private ContentHeader header;
+
+	@Before
+	public void initTest() {
+		when(backend.getAttributes(anyString())).thenReturn(attributes);
+		when(metaDataService.loadMetaData(anyString(), anyBoolean())).thenReturn(new MetaData());
+		when(metaDataService.loadOwnMetaData(anyString(), anyBoolean())).thenReturn(new MetaData());
+		when(contentHeaderService.getContentHeader(anyString(), any(BasicFileAttributes.class),
+				any(MetaData.class))).thenReturn(header);
+	}
+
+	@Test
+	public void changeFolderName() {
+		when(backend.renameFile(anyString(), anyString())).thenReturn("test/new_name");
+		when(backend.getAttributes(endsWith("new_name")))
+				.thenThrow(new ResourceNotFoundException(ResourceNotFoundException.MessageCode.FILE_NOT_FOUND));
+		Content<?> folder = buildFolder();
+		folder.getHeader().setName("new_name");
+
+		String newPath = service.writeContent("test/path", folder);
+
+		verify(backend).renameFile("test/path", "new_name");
+		verify(metaDataService).writeMetaData(eq("test/new_name"), notNull(MetaData.class));
+		verify(metaDataService, never()).renameMetaDataFile(anyString(), anyString());
+		verify(metaDataService).renameMetaData("test/path", "new_name", true);
+
+		assertThat(newPath).isEqualTo("test/new_name");
+	}
+
+	@Test
+	public void rejectRenameOntoExistingContent() {
+		Content<?> folder = buildFolder();
+		folder.getHeader().setName("existing");
+
+		assertThatThrownBy(() -> service.writeContent("test/path", folder))
+				.isInstanceOf(UnprocessableEntityException.class);
+
+		verify(metaDataService, never()).renameMetaData(anyString(), anyString(), anyBoolean());
+		verify(backend, never()).renameFile(anyString(), anyString());
+	}
+
+	@Test
+	public void readBinaryContent() {
+		when(header.isJsonContent()).thenReturn(false);
+
+		Content<?> content = service.readContent("path/to/content.jpeg");
+
+		verify(contentService).readBinaryData(handleCaptor.capture());
+		assertThat(handleCaptor.getValue().getPath()).isEqualTo("path/to/content.jpeg");
+		verify(backend, times(1)).getAttributes(eq("path/to/content.jpeg"));
+		verify(metaDataService, times(1)).loadMetaData(eq("path/to/content.jpeg"), eq(false));
+		assertThat(content.getHeader()).as("Binary Content Header").isNotNull().isSameAs(header);
+		assertThat(content.getMetaData()).isSameAs(handleCaptor.getValue().getMetaData());
+	}
+
+	private Content<?> buildFolder() {
+		Content<?> content = new Content<>();
+		content.getHeader().setType(ContentItemType.NODE);
+		return content;
+	}
+}